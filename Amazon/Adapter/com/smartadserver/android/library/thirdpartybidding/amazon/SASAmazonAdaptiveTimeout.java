@@ -0,0 +1,336 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class learns the latency of Amazon responses on the device, per slot ID and network type, and derives from it
+ * the header bidding deadline of each slot, instead of a single fixed timeout that is too short on slow networks and
+ * too long on fast ones.
+ * <p>
+ * The deadline is the one maximizing the expected revenue: the ratio of Amazon requests answered with a bid before
+ * the deadline, minus a configurable cost per second of waiting (expressed as a ratio of the value of an Amazon bid).
+ * It never exceeds the target percentile of the observed bid latencies, and stays within configurable bounds.
+ * Statistics are kept in {@link SASAmazonLatencyHistogram}s whose older samples decay over time, and are persisted in
+ * the shared preferences of the application so that the deadlines are warm at the next launch.
+ * <p>
+ * Use it with {@link SASAmazonBidOrchestrator#setAdaptiveTimeout(SASAmazonAdaptiveTimeout)}, or call
+ * {@link #getTimeoutMs(String, SASAmazonNetworkType)}, {@link #recordBid(String, SASAmazonNetworkType, long)} and
+ * {@link #recordNoBid(String, SASAmazonNetworkType)} around your own Amazon requests.
+ * <p>
+ * This class is thread safe.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonAdaptiveTimeout {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonAdaptiveTimeout.class.getSimpleName();
+
+    // name of the shared preferences file storing the latency statistics
+    private static final String PREFERENCES_NAME = "SASAmazonAdaptiveTimeout";
+
+    // default bounds of the header bidding deadline
+    public static final long DEFAULT_MIN_TIMEOUT_MS = 200;
+    public static final long DEFAULT_MAX_TIMEOUT_MS = 3000;
+
+    // default percentile of the bid latencies the deadline never exceeds
+    public static final double DEFAULT_TARGET_PERCENTILE = 0.95;
+
+    // default cost of one second of waiting, as a ratio of the value of an Amazon bid
+    public static final double DEFAULT_WAIT_COST_PER_SECOND = 0.1;
+
+    // number of requests under which a slot keeps the default deadline
+    private static final int MIN_REQUEST_COUNT = 20;
+
+    // number of requests after which the statistics of a slot decay, so that recent requests weigh more
+    private static final int DECAY_REQUEST_COUNT = 1000;
+
+    // number of records after which the statistics are persisted
+    private static final int SAVE_RECORD_COUNT = 20;
+
+    // separator between the slot ID and the network type in statistics keys
+    private static final char KEY_SEPARATOR = '|';
+
+    // shared preferences storing the latency statistics
+    private final SharedPreferences preferences;
+
+    // deadline used until enough requests have been observed, in milliseconds
+    private final long defaultTimeoutMs;
+
+    // bounds of the deadline, in milliseconds
+    private final long minTimeoutMs;
+    private final long maxTimeoutMs;
+
+    // percentile of the bid latencies the deadline never exceeds
+    private final double targetPercentile;
+
+    // cost of one second of waiting, as a ratio of the value of an Amazon bid
+    private final double waitCostPerSecond;
+
+    // latency statistics, by slot ID and network type key
+    private final Map<String, SlotStats> slotStats = new HashMap<>();
+
+    // keys of the statistics changed since the last save
+    private final Set<String> unsavedKeys = new HashSet<>();
+
+    // number of records since the last save
+    private int unsavedRecordCount = 0;
+
+    /**
+     * Creates a {@link SASAmazonAdaptiveTimeout} with default settings, using
+     * {@link SASAmazonBidOrchestrator#DEFAULT_TIMEOUT_MS} until enough requests have been observed
+     */
+    public SASAmazonAdaptiveTimeout(@NonNull Context context) {
+        this(context, SASAmazonBidOrchestrator.DEFAULT_TIMEOUT_MS, DEFAULT_MIN_TIMEOUT_MS, DEFAULT_MAX_TIMEOUT_MS,
+                DEFAULT_TARGET_PERCENTILE, DEFAULT_WAIT_COST_PER_SECOND);
+    }
+
+    /**
+     * Creates a {@link SASAmazonAdaptiveTimeout}, loading the statistics persisted by previous launches
+     *
+     * @param context           the application context
+     * @param defaultTimeoutMs  the deadline used until enough requests have been observed for a slot, in milliseconds
+     * @param minTimeoutMs      the shortest deadline, in milliseconds
+     * @param maxTimeoutMs      the longest deadline, in milliseconds
+     * @param targetPercentile  the percentile of the bid latencies the deadline never exceeds, between 0 and 1
+     * @param waitCostPerSecond the cost of one second of waiting, as a ratio of the value of an Amazon bid (0.1 if
+     *                          waiting one more second is worth it only to get 10% more bids)
+     */
+    public SASAmazonAdaptiveTimeout(@NonNull Context context, long defaultTimeoutMs, long minTimeoutMs, long maxTimeoutMs,
+                                    double targetPercentile, double waitCostPerSecond) {
+        if (minTimeoutMs <= 0 || maxTimeoutMs < minTimeoutMs) {
+            throw new IllegalArgumentException("The timeout bounds must be strictly positive and ordered.");
+        }
+        if (targetPercentile <= 0 || targetPercentile > 1) {
+            throw new IllegalArgumentException("The target percentile must be between 0 and 1.");
+        }
+        if (waitCostPerSecond < 0) {
+            throw new IllegalArgumentException("The wait cost must be positive.");
+        }
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.defaultTimeoutMs = Math.max(minTimeoutMs, Math.min(maxTimeoutMs, defaultTimeoutMs));
+        this.minTimeoutMs = minTimeoutMs;
+        this.maxTimeoutMs = maxTimeoutMs;
+        this.targetPercentile = targetPercentile;
+        this.waitCostPerSecond = waitCostPerSecond;
+
+        load();
+    }
+
+    /**
+     * Returns the header bidding deadline of the given slot on the given network type
+     *
+     * @return the deadline, in milliseconds
+     */
+    public synchronized long getTimeoutMs(@NonNull String slotId, @NonNull SASAmazonNetworkType networkType) {
+        SlotStats stats = slotStats.get(getKey(slotId, networkType));
+        if (stats == null || stats.requestCount < MIN_REQUEST_COUNT) {
+            return defaultTimeoutMs;
+        }
+
+        long maxLatencyMs = stats.bidLatencies.getPercentile(targetPercentile);
+        long[] counts = stats.bidLatencies.getCounts();
+
+        // find the deadline maximizing the ratio of bids received minus the cost of waiting for them
+        double bestScore = 0;
+        long bestTimeoutMs = minTimeoutMs;
+        long cumulatedCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            long upperBoundMs = SASAmazonLatencyHistogram.getBucketUpperBound(i);
+            if (maxLatencyMs >= 0 && upperBoundMs > maxLatencyMs) {
+                break;
+            }
+            if (counts[i] == 0) {
+                continue;
+            }
+            cumulatedCount += counts[i];
+
+            // the bucket upper bound is inclusive, the deadline must be just past it
+            long timeoutMs = upperBoundMs + 1;
+            double score = (double) cumulatedCount / stats.requestCount - waitCostPerSecond * timeoutMs / 1000;
+            if (score > bestScore) {
+                bestScore = score;
+                bestTimeoutMs = timeoutMs;
+            }
+        }
+
+        return Math.max(minTimeoutMs, Math.min(maxTimeoutMs, bestTimeoutMs));
+    }
+
+    /**
+     * Returns whether requests of the given slot on the given network type have already been recorded
+     */
+    public synchronized boolean hasStats(@NonNull String slotId, @NonNull SASAmazonNetworkType networkType) {
+        return slotStats.containsKey(getKey(slotId, networkType));
+    }
+
+    /**
+     * Records an Amazon request answered with a bid, whether before or after the deadline
+     *
+     * @param latencyMs the time elapsed between the request and the response, in milliseconds
+     */
+    public synchronized void recordBid(@NonNull String slotId, @NonNull SASAmazonNetworkType networkType, long latencyMs) {
+        SlotStats stats = getOrCreateStats(slotId, networkType);
+        stats.bidLatencies.record(latencyMs);
+        onRequestRecorded(slotId, networkType, stats);
+    }
+
+    /**
+     * Records an Amazon request answered without bid
+     */
+    public synchronized void recordNoBid(@NonNull String slotId, @NonNull SASAmazonNetworkType networkType) {
+        SlotStats stats = getOrCreateStats(slotId, networkType);
+        onRequestRecorded(slotId, networkType, stats);
+    }
+
+    /**
+     * Persists the statistics changed since the last save. Statistics are also saved periodically while recording,
+     * call this method when the application goes to background to save the latest ones.
+     */
+    public synchronized void save() {
+        if (unsavedKeys.isEmpty()) {
+            return;
+        }
+
+        SharedPreferences.Editor editor = preferences.edit();
+        for (String key : unsavedKeys) {
+            editor.putString(key, slotStats.get(key).serialize());
+        }
+        editor.apply();
+
+        unsavedKeys.clear();
+        unsavedRecordCount = 0;
+    }
+
+    /**
+     * Removes all statistics, including the persisted ones
+     */
+    public synchronized void reset() {
+        slotStats.clear();
+        unsavedKeys.clear();
+        unsavedRecordCount = 0;
+        preferences.edit().clear().apply();
+    }
+
+    /**
+     * Updates the request count of a slot after a record, decays and saves the statistics when needed
+     */
+    private void onRequestRecorded(@NonNull String slotId, @NonNull SASAmazonNetworkType networkType, @NonNull SlotStats stats) {
+        stats.requestCount++;
+        if (stats.requestCount >= DECAY_REQUEST_COUNT) {
+            stats.bidLatencies.decay();
+            stats.requestCount >>= 1;
+        }
+
+        unsavedKeys.add(getKey(slotId, networkType));
+        if (++unsavedRecordCount >= SAVE_RECORD_COUNT) {
+            save();
+        }
+    }
+
+    @NonNull
+    private SlotStats getOrCreateStats(@NonNull String slotId, @NonNull SASAmazonNetworkType networkType) {
+        String key = getKey(slotId, networkType);
+        SlotStats stats = slotStats.get(key);
+        if (stats == null) {
+            stats = new SlotStats();
+            slotStats.put(key, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Loads the statistics persisted by previous launches, ignoring malformed entries
+     */
+    private void load() {
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (!(entry.getValue() instanceof String)) {
+                continue;
+            }
+            SlotStats stats = SlotStats.deserialize((String) entry.getValue());
+            if (stats != null) {
+                slotStats.put(entry.getKey(), stats);
+            } else {
+                Log.i(TAG, "Ignoring malformed Amazon latency statistics for " + entry.getKey());
+            }
+        }
+    }
+
+    @NonNull
+    private static String getKey(@NonNull String slotId, @NonNull SASAmazonNetworkType networkType) {
+        return slotId + KEY_SEPARATOR + networkType.name();
+    }
+
+    /**
+     * Latency statistics of a slot on a network type
+     */
+    private static class SlotStats {
+
+        // separator between the request count and the histogram counts in serialized statistics
+        private static final char COUNT_SEPARATOR = ';';
+
+        // separator between the histogram counts in serialized statistics
+        private static final char BUCKET_SEPARATOR = ',';
+
+        // latencies of the requests answered with a bid
+        final SASAmazonLatencyHistogram bidLatencies = new SASAmazonLatencyHistogram();
+
+        // number of requests, with or without bid
+        long requestCount = 0;
+
+        /**
+         * Serializes these statistics as 'requestCount;count0,count1,...'
+         */
+        @NonNull
+        String serialize() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(requestCount).append(COUNT_SEPARATOR);
+            long[] counts = bidLatencies.getCounts();
+            for (int i = 0; i < counts.length; i++) {
+                if (i > 0) {
+                    builder.append(BUCKET_SEPARATOR);
+                }
+                builder.append(counts[i]);
+            }
+            return builder.toString();
+        }
+
+        /**
+         * Deserializes statistics serialized by {@link #serialize()}
+         *
+         * @return the statistics, or null if malformed
+         */
+        static SlotStats deserialize(@NonNull String serializedStats) {
+            int separatorIndex = serializedStats.indexOf(COUNT_SEPARATOR);
+            if (separatorIndex <= 0) {
+                return null;
+            }
+
+            try {
+                SlotStats stats = new SlotStats();
+                stats.requestCount = Long.parseLong(serializedStats.substring(0, separatorIndex));
+
+                String[] serializedCounts = serializedStats.substring(separatorIndex + 1).split(String.valueOf(BUCKET_SEPARATOR));
+                if (serializedCounts.length != SASAmazonLatencyHistogram.BUCKET_COUNT) {
+                    return null;
+                }
+                long[] counts = new long[serializedCounts.length];
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = Long.parseLong(serializedCounts[i]);
+                }
+                stats.bidLatencies.setCounts(counts);
+                return stats;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -5,6 +5,9 @@ import android.util.Log;
 import android.view.View;
 import android.widget.LinearLayout;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import com.amazon.device.ads.DTBAdBannerListener;
 import com.amazon.device.ads.DTBAdResponse;
 import com.amazon.device.ads.DTBAdSize;
@@ -14,6 +17,12 @@ import com.smartadserver.android.library.thirdpartybidding.SASBannerBidderAdapte
 import com.smartadserver.android.library.thirdpartybidding.SASBannerBidderAdapterListener;
 import com.smartadserver.android.library.util.SASUtil;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * This class is an implementation of the {@link SASBannerBidderAdapter} interface for the Amazon Mobile Match Buy SDK
  * It extends the bas class {@link SASAmazonBaseBidderAdapter} in charge of processing the header bidding request
@@ -25,14 +34,137 @@ public class SASAmazonBannerBidderAdapter extends SASAmazonBaseBidderAdapter imp
     // tag for logging purposes
     private static final String TAG = SASAmazonBannerBidderAdapter.class.getSimpleName();
 
+    // value of the lazy rendering distance disabling lazy rendering
+    public static final int LAZY_RENDERING_DISABLED = -1;
+
+    // default distance to the viewport at which a lazily rendered banner fetches its creative, about a screen of feed
+    public static final int DEFAULT_LAZY_RENDERING_DISTANCE_DP = 600;
+
     // Amazon banner AdView
     DTBAdView amazonBannerView = null;
 
     // banner parent  view group for proper banner sizing
     LinearLayout linearLayout = null;
 
-    // callback to notify Smart SDK of events generated by Amazon banner
-    SASBannerBidderAdapterListener bannerBidderAdapterListener;
+    // callback to notify Smart SDK of events generated by Amazon banner, set from the Smart SDK thread and read once per Amazon event
+    final AtomicReference<SASBannerBidderAdapterListener> bannerBidderAdapterListener = new AtomicReference<>();
+
+    // sizes returned by Amazon that the bid has a pricepoint for, one of them is rendered
+    private final List<DTBAdSize> adSizes = new ArrayList<>();
+
+    // pricepoint of each of the bidded sizes, in the same order
+    private final List<String> adSizePricepoints = new ArrayList<>();
+
+    // size of the Amazon banner, the one of the bid pricepoint unless another bidded size fits the container view better
+    private DTBAdSize adSize = null;
+
+    // context used to build the banner views when rendering, weakly referenced so that the adapter does not keep it alive
+    private final WeakReference<Context> contextReference;
+
+    // pooled container of the banner views, if borrowed from a pool
+    private SASAmazonBannerViewPool.Container bannerContainer = null;
+
+    // loan of the pooled container to this adapter, so that it is only given back by its current borrower
+    private int bannerContainerLoan = 0;
+
+    // optional pool to borrow the banner views from
+    private SASAmazonBannerViewPool bannerViewPool = null;
+
+    // distance to the viewport at which the creative is fetched in lazy rendering mode, in dp, or LAZY_RENDERING_DISABLED
+    private int lazyRenderingDistanceDp = LAZY_RENDERING_DISABLED;
+
+    // placeholder reported to the Smart SDK in lazy rendering mode, the banner views being added to it once near the viewport
+    private LinearLayout placeholderLayout = null;
+
+    // gate fetching the creative once the placeholder is near the viewport, in lazy rendering mode
+    private SASAmazonViewportGate viewportGate = null;
+
+    // whether the placeholder has been reported as loaded to the Smart SDK, in lazy rendering mode
+    private boolean placeholderReported = false;
+
+    // set once the rendering failure has been reported, so that it is reported only once
+    private boolean renderingFailed = false;
+
+    // timestamps of the rendering dispatch, creative fetch and load, for lifecycle metrics
+    private long dispatchStartNanos = 0;
+    private long creativeFetchNanos = 0;
+    private long creativeLoadedNanos = 0;
+
+    // preallocated task rendering the Amazon banner on the main thread
+    private final Runnable renderTask = new Runnable() {
+        @Override
+        public void run() {
+            SASAmazonBidMetrics.reportEnd(bid.slotId, SASAmazonBidMetrics.Stage.RENDERING_DISPATCH, dispatchStartNanos);
+
+            // the adapter may have been released, or its screen destroyed, while the task was pending
+            Context context = contextReference.get();
+            if (isReleased() || context == null) {
+                failRendering(ADAPTER_RELEASED_MESSAGE);
+                return;
+            }
+
+            // in lazy rendering mode, report a placeholder right away and wait for it to come near the viewport
+            if (lazyRenderingDistanceDp != LAZY_RENDERING_DISABLED && amazonBannerView == null) {
+                renderPlaceholder(context);
+                return;
+            }
+
+            fetchCreative(context);
+        }
+    };
+
+    // preallocated task fetching the creative once the placeholder is near the viewport, in lazy rendering mode
+    private final Runnable lazyFetchTask = new Runnable() {
+        @Override
+        public void run() {
+            viewportGate = null;
+
+            Context context = contextReference.get();
+            if (isReleased() || context == null) {
+                failRendering(ADAPTER_RELEASED_MESSAGE);
+                return;
+            }
+
+            // the placeholder may have been scrolled to long after the bid was selected
+            if (isExpired()) {
+                Log.i(TAG, "Amazon banner bid expired " + getBidAgeMs() + "ms after reception, creative not fetched");
+                failRendering(BID_EXPIRED_MESSAGE);
+                return;
+            }
+            Log.i(TAG, "Amazon banner placeholder near the viewport, fetching creative");
+            createBannerViews(context);
+            placeholderLayout.addView(linearLayout, new LinearLayout.LayoutParams(
+                    LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+            fetchCreative(context);
+        }
+    };
+
+    // preallocated task reporting the placeholder as loaded, in lazy rendering mode
+    private final Runnable placeholderLoadedTask = new Runnable() {
+        @Override
+        public void run() {
+            // the rendering may have failed, or the adapter been released, before the placeholder was reported
+            if (renderingFailed || placeholderLayout == null) {
+                return;
+            }
+            placeholderReported = true;
+            SASBannerBidderAdapterListener listener = bannerBidderAdapterListener.get();
+            if (listener != null) {
+                listener.onBannerLoaded(placeholderLayout);
+            }
+        }
+    };
+
+    // preallocated task stopping to watch the placeholder, when detached in lazy rendering mode
+    private final Runnable closeViewportGateTask = new Runnable() {
+        @Override
+        public void run() {
+            if (viewportGate != null) {
+                viewportGate.close();
+                viewportGate = null;
+            }
+        }
+    };
 
     /**
      * Creates a {@link SASAmazonBannerBidderAdapter} from Amazon ad response
@@ -40,35 +172,231 @@ public class SASAmazonBannerBidderAdapter extends SASAmazonBaseBidderAdapter imp
     public SASAmazonBannerBidderAdapter(DTBAdResponse adResponse, Context context) throws IllegalArgumentException {
         super(adResponse);
 
+        List<DTBAdSize> adSizes = adResponse.getDTBAds();
 
-        DTBAdSize adSize = null;
-        try {
-            adSize = adResponse.getDTBAds().get(0);
-        } catch (Exception e) {
-            // if there is not at least one DTBAdSize for any reason (empty list, null list..)
+        // no ad : abort
+        if (adSizes == null || adSizes.size() == 0) {
+            throw new IllegalArgumentException(SASAmazonBidRejectionReason.NO_AD_SIZE.getMessage());
         }
 
-        // no ad : abort
-        if (adSize == null) {
-            throw new IllegalArgumentException("No ad size found for Amazon's banner, we will not render the ad.");
+        collectBiddedAdSizes(adSizes, adResponse.getDefaultDisplayAdsRequestCustomParams());
+        this.contextReference = new WeakReference<>(context);
+
+        // banner views are only built when the bid wins the competition, see loadBidderBanner()
+    }
+
+    /**
+     * Creates a {@link SASAmazonBannerBidderAdapter} from already validated Amazon bid parameters and ad sizes
+     */
+    private SASAmazonBannerBidderAdapter(SASAmazonBid bid, List<DTBAdSize> adSizes, Map<String, List<String>> customParams, Context context) {
+        super(bid);
+        collectBiddedAdSizes(adSizes, customParams);
+        this.contextReference = new WeakReference<>(context);
+    }
+
+    /**
+     * Keeps the returned sizes the Amazon response has a pricepoint for, and selects the size of the bid pricepoint.
+     * Pricepoints that do not encode their size are kept for the first returned size.
+     *
+     * @param returnedSizes the sizes returned by Amazon, at least one
+     * @param customParams  the default display custom parameters of the Amazon ad response
+     */
+    private void collectBiddedAdSizes(@NonNull List<DTBAdSize> returnedSizes, @Nullable Map<String, List<String>> customParams) {
+        List<String> pricepoints = customParams != null ? customParams.get(SASAmazonBid.AMZNSLOTS) : null;
+        for (DTBAdSize returnedSize : returnedSizes) {
+            String pricepoint = SASAmazonBid.findPricepoint(pricepoints, returnedSize.getWidth(), returnedSize.getHeight());
+            if (pricepoint != null) {
+                adSizes.add(returnedSize);
+                adSizePricepoints.add(pricepoint);
+            }
+        }
+
+        if (adSizes.isEmpty()) {
+            adSizes.add(returnedSizes.get(0));
+            adSizePricepoints.add(bid.amznslots);
+        }
+
+        int bidSizeIndex = adSizePricepoints.indexOf(bid.amznslots);
+        if (bidSizeIndex < 0) {
+            bidSizeIndex = 0;
+            setPricepoint(adSizePricepoints.get(0));
+        }
+        adSize = adSizes.get(bidSizeIndex);
+    }
+
+    /**
+     * Wraps the Amazon ad response in a {@link SASAmazonBannerBidderAdapter} without throwing, to keep the no-bid path cheap.
+     * It can be called from any thread, as no view is created before rendering: see {@link SASAmazonBidderAdapterFactory}.
+     *
+     * @return a result holding either the bidder adapter or the reason why the response cannot be used
+     */
+    @NonNull
+    public static SASAmazonBidderAdapterResult<SASAmazonBannerBidderAdapter> create(@NonNull DTBAdResponse adResponse, @NonNull Context context) {
+        long creationStartNanos = SASAmazonBidMetrics.now();
+
+        SASAmazonBid bid = parseResponse(adResponse);
+        if (bid.rejectionReason != null) {
+            return SASAmazonBidderAdapterResult.rejected(bid.rejectionReason);
+        }
+
+        List<DTBAdSize> adSizes = adResponse.getDTBAds();
+        if (adSizes == null || adSizes.size() == 0) {
+            return SASAmazonBidderAdapterResult.rejected(SASAmazonBidRejectionReason.NO_AD_SIZE);
+        }
+
+        SASAmazonBannerBidderAdapter bidderAdapter = new SASAmazonBannerBidderAdapter(bid, adSizes,
+                adResponse.getDefaultDisplayAdsRequestCustomParams(), context);
+        SASAmazonBidMetrics.reportEnd(bid.slotId, SASAmazonBidMetrics.Stage.ADAPTER_CREATION, creationStartNanos);
+        return SASAmazonBidderAdapterResult.accepted(bidderAdapter);
+    }
+
+    /**
+     * Sets the view the Amazon banner will be displayed in, usually the SASBannerView. When Amazon bid on several sizes,
+     * the largest one fitting in the measured dimensions of this view is rendered, and its pricepoint sent to the Smart
+     * SDK, instead of the ones of the bid. The view is not kept.
+     * Must be called on the main thread, before passing this adapter to the Smart SDK.
+     */
+    public void setContainerView(@Nullable View containerView) {
+        if (containerView == null || adSizes.size() < 2 || containerView.getWidth() <= 0 || containerView.getHeight() <= 0) {
+            return;
+        }
+        float density = containerView.getResources().getDisplayMetrics().density;
+        DTBAdSize bestSize = selectBestAdSize(adSizes, (int) (containerView.getWidth() / density), (int) (containerView.getHeight() / density));
+
+        // the size cannot change anymore once the Smart SDK has read the pricepoint
+        if (bestSize != adSize && setPricepoint(adSizePricepoints.get(adSizes.indexOf(bestSize)))) {
+            adSize = bestSize;
+        }
+    }
+
+    /**
+     * Returns the largest ad size fitting in the given dimensions, or the smallest one if none fits
+     *
+     * @param adSizes     the candidate ad sizes, at least one
+     * @param maxWidthDp  the available width, in dp
+     * @param maxHeightDp the available height, in dp
+     */
+    @NonNull
+    static DTBAdSize selectBestAdSize(@NonNull List<DTBAdSize> adSizes, int maxWidthDp, int maxHeightDp) {
+        DTBAdSize bestFittingSize = null;
+        DTBAdSize smallestSize = null;
+        for (DTBAdSize candidate : adSizes) {
+            int area = candidate.getWidth() * candidate.getHeight();
+            if (candidate.getWidth() <= maxWidthDp && candidate.getHeight() <= maxHeightDp
+                    && (bestFittingSize == null || area > bestFittingSize.getWidth() * bestFittingSize.getHeight())) {
+                bestFittingSize = candidate;
+            }
+            if (smallestSize == null || area < smallestSize.getWidth() * smallestSize.getHeight()) {
+                smallestSize = candidate;
+            }
+        }
+        return bestFittingSize != null ? bestFittingSize : smallestSize;
+    }
+
+    /**
+     * Sets the pool the Amazon banner views should be borrowed from, instead of being created for this adapter only.
+     * Must be called before passing this adapter to the Smart SDK.
+     */
+    public void setBannerViewPool(@Nullable SASAmazonBannerViewPool bannerViewPool) {
+        this.bannerViewPool = bannerViewPool;
+    }
+
+    /**
+     * Enables the lazy rendering mode, for banners that may be far from the screen, like in a long feed: when the Smart
+     * SDK selects the Amazon bid, an empty placeholder of the banner size is reported as loaded right away, and the Amazon
+     * creative is only fetched once the placeholder comes within the given distance of the visible area of the window.
+     * Must be called before passing this adapter to the Smart SDK.
+     *
+     * @param distanceDp the distance to the visible area at which the creative is fetched, in dp, or
+     *                   {@link #LAZY_RENDERING_DISABLED} to fetch it right away
+     */
+    public void setLazyRenderingDistance(int distanceDp) {
+        if (distanceDp < 0 && distanceDp != LAZY_RENDERING_DISABLED) {
+            throw new IllegalArgumentException("The lazy rendering distance cannot be negative.");
+        }
+        this.lazyRenderingDistanceDp = distanceDp;
+    }
+
+    /**
+     * Reports a placeholder of the banner size to the Smart SDK, and starts watching its distance to the viewport.
+     * Must be called on the main thread.
+     */
+    private void renderPlaceholder(@NonNull Context context) {
+        placeholderLayout = new LinearLayout(context);
+        placeholderLayout.setLayoutParams(new LinearLayout.LayoutParams(
+                SASUtil.getDimensionInPixels(adSize.getWidth(), context.getResources()),
+                SASUtil.getDimensionInPixels(adSize.getHeight(), context.getResources())));
+
+        // always posted, so that the Smart SDK is never called back from within loadBidderBanner()
+        SCSUtil.getMainLooperHandler().post(placeholderLoadedTask);
+
+        viewportGate = new SASAmazonViewportGate(placeholderLayout,
+                SASUtil.getDimensionInPixels(lazyRenderingDistanceDp, context.getResources()), lazyFetchTask);
+    }
+
+    /**
+     * Reports that the banner cannot be rendered, once. Before the placeholder is reported as loaded, the Smart SDK is
+     * notified of the failure. Afterwards, a failure would contradict the load already reported: the placeholder is
+     * collapsed instead, and the Smart SDK notified that the ad is closed. Must be called on the main thread.
+     */
+    private void failRendering(@NonNull String message) {
+        if (renderingFailed) {
+            return;
+        }
+        renderingFailed = true;
+
+        SASBannerBidderAdapterListener listener = bannerBidderAdapterListener.get();
+        if (placeholderReported) {
+            Log.i(TAG, "Amazon banner placeholder collapsed: " + message);
+            if (placeholderLayout != null) {
+                placeholderLayout.setVisibility(View.GONE);
+            }
+            if (listener != null) {
+                listener.onAdClosed();
+            }
+        } else if (listener != null) {
+            listener.adRequestFailed(message, false);
+        }
+    }
+
+    /**
+     * Builds the banner views if needed and fetches the Amazon creative. Must be called on the main thread.
+     */
+    private void fetchCreative(@NonNull Context context) {
+        // build the banner views now that the bid actually needs to be rendered, with the selected size
+        if (amazonBannerView == null) {
+            createBannerViews(context);
         }
 
+        // load creative from bid
+        creativeFetchNanos = SASAmazonBidMetrics.now();
+        amazonBannerView.fetchAd(bidInfos);
+    }
+
+    /**
+     * Builds (or borrows) the Amazon banner view and its parent layout. Must be called on the main thread.
+     */
+    private void createBannerViews(@NonNull Context context) {
+
         // Create Amazon banner listener than will forward events to the SASBannerBidderAdapterListener instance
         DTBAdBannerListener bannerListener = new DTBAdBannerListener() {
 
             @Override
             public void onAdLoaded(View view) {
-                if (bannerBidderAdapterListener != null) {
+                creativeLoadedNanos = SASAmazonBidMetrics.now();
+                SASAmazonBidMetrics.report(bid.slotId, SASAmazonBidMetrics.Stage.CREATIVE_LOADING, creativeFetchNanos, creativeLoadedNanos);
+
+                // in lazy rendering mode, the placeholder containing the banner has already been reported
+                SASBannerBidderAdapterListener listener = bannerBidderAdapterListener.get();
+                if (listener != null && placeholderLayout == null) {
                     // pass the linearLayout containing the Amazon banner to the smart SDK
-                    bannerBidderAdapterListener.onBannerLoaded(linearLayout);
+                    listener.onBannerLoaded(linearLayout);
                 }
             }
 
             @Override
             public void onAdFailed(View view) {
-                if (bannerBidderAdapterListener != null) {
-                    bannerBidderAdapterListener.adRequestFailed("Amazon bidder banner ad could not be displayed", false);
-                }
+                failRendering("Amazon bidder banner ad could not be displayed");
             }
 
             @Override
@@ -78,36 +406,50 @@ public class SASAmazonBannerBidderAdapter extends SASAmazonBaseBidderAdapter imp
 
             @Override
             public void onAdLeftApplication(View view) {
-                if (bannerBidderAdapterListener != null) {
-                    bannerBidderAdapterListener.onAdLeftApplication();
+                SASBannerBidderAdapterListener listener = bannerBidderAdapterListener.get();
+                if (listener != null) {
+                    listener.onAdLeftApplication();
                 }
             }
 
             @Override
             public void onAdOpen(View view) {
-                if (bannerBidderAdapterListener != null) {
+                SASBannerBidderAdapterListener listener = bannerBidderAdapterListener.get();
+                if (listener != null) {
                     // onAdOpen corresponds to the onAdClicked in the smart SDK
-                    bannerBidderAdapterListener.onAdClicked();
+                    listener.onAdClicked();
                 }
             }
 
             @Override
             public void onAdClosed(View view) {
-                if (bannerBidderAdapterListener != null) {
-                    bannerBidderAdapterListener.onAdClosed();
+                SASBannerBidderAdapterListener listener = bannerBidderAdapterListener.get();
+                if (listener != null) {
+                    listener.onAdClosed();
                 }
             }
 
             @Override
             public void onImpressionFired(View view) {
                 Log.i(TAG, "Amazon bidder banner ad impression fired");
+                SASAmazonBidMetrics.reportEnd(bid.slotId, SASAmazonBidMetrics.Stage.IMPRESSION, creativeLoadedNanos);
+                recordImpression();
             }
         };
 
-        // create Amazon banner ad view...
+        // borrow the banner views from the pool if any...
+        if (bannerViewPool != null) {
+            bannerContainer = bannerViewPool.acquire(adSize, bannerListener);
+            bannerContainerLoan = bannerContainer.getLoan();
+            amazonBannerView = bannerContainer.amazonBannerView;
+            linearLayout = bannerContainer.linearLayout;
+            return;
+        }
+
+        // ...otherwise create Amazon banner ad view...
         amazonBannerView = new DTBAdView(context, bannerListener);
 
-        // ...and wrap it in the parent Layout with proper size as fetched above
+        // ...and wrap it in the parent Layout with proper size as selected for rendering
         linearLayout = new LinearLayout(context);
         linearLayout.addView(amazonBannerView,
                 new LinearLayout.LayoutParams(SASUtil.getDimensionInPixels(adSize.getWidth(), context.getResources()),
@@ -123,17 +465,68 @@ public class SASAmazonBannerBidderAdapter extends SASAmazonBaseBidderAdapter imp
     @Override
     public void loadBidderBanner(SASBannerBidderAdapterListener bannerAdapterListener) {
 
+        // a released adapter no longer has the resources to render its banner
+        if (isReleased()) {
+            bannerAdapterListener.adRequestFailed(ADAPTER_RELEASED_MESSAGE, false);
+            return;
+        }
+
         // store the SASBannerBidderAdapterListener passed by smart SDK for event forwarding
-        this.bannerBidderAdapterListener = bannerAdapterListener;
+        this.bannerBidderAdapterListener.set(bannerAdapterListener);
 
-        SCSUtil.getMainLooperHandler().post(new Runnable() {
-            @Override
-            public void run() {
-                // load creative from bid
-                amazonBannerView.fetchAd(bidInfos);
-            }
-        });
+        // do not waste a rendering attempt on a stale bid
+        if (isExpired()) {
+            Log.i(TAG, "Amazon banner bid expired " + getBidAgeMs() + "ms after reception");
+            bannerAdapterListener.adRequestFailed(BID_EXPIRED_MESSAGE, false);
+            return;
+        }
 
+        // render right away if already on the main thread
+        dispatchStartNanos = SASAmazonBidMetrics.now();
+        SASAmazonMainThreadDispatcher.dispatch(renderTask);
 
+
+    }
+
+    /**
+     * Returns whether the Smart SDK has asked this adapter to render its banner
+     */
+    boolean isRenderingStarted() {
+        return dispatchStartNanos != 0;
+    }
+
+    /**
+     * Stops forwarding the Amazon banner events to the Smart SDK. Call it when the Smart banner view is destroyed, so
+     * that late Amazon events are not forwarded to a released listener.
+     */
+    @Override
+    public void detach() {
+        bannerBidderAdapterListener.set(null);
+
+        // a creative that was never scrolled to does not need to be fetched anymore
+        SASAmazonMainThreadDispatcher.dispatch(closeViewportGateTask);
+    }
+
+    @Override
+    void releaseResources(boolean destroyViews) {
+        SCSUtil.getMainLooperHandler().removeCallbacks(placeholderLoadedTask);
+        if (viewportGate != null) {
+            viewportGate.close();
+            viewportGate = null;
+        }
+
+        // pooled banner views go back to their pool, the others are destroyed if requested
+        if (bannerContainer != null) {
+            bannerContainer.giveBack(bannerContainerLoan);
+            bannerContainer = null;
+        } else if (amazonBannerView != null && destroyViews) {
+            linearLayout.removeAllViews();
+            amazonBannerView.destroy();
+        }
+        amazonBannerView = null;
+        linearLayout = null;
+        placeholderLayout = null;
+        bannerViewPool = null;
+        contextReference.clear();
     }
 }
@@ -0,0 +1,335 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.device.ads.DTBAdSize;
+import com.smartadserver.android.coresdk.util.SCSUtil;
+
+import java.util.Random;
+
+/**
+ * This class refreshes a banner placement at a regular interval, prefetching the next Amazon bid in a
+ * {@link SASAmazonBidCache} shortly before each refresh, so that the Amazon latency is never on the refresh critical path.
+ * <p>
+ * Refreshes are paused while the banner view is hidden or off screen, and while its Activity is stopped, typically when
+ * the application goes to background: no bid is requested nor ad loaded that nobody can see. A refresh missed while paused
+ * happens as soon as the banner is visible again, after a new prefetch.
+ * <p>
+ * When the prefetched Amazon bid is missing at refresh time, the interval before the next refresh grows exponentially
+ * with the number of consecutive refreshes without bid, up to a maximum, and is randomized so that devices do not refresh
+ * in lockstep. The interval goes back to normal as soon as a bid is received.
+ * <p>
+ * The refresh itself is left to the {@link Listener}, typically running a {@link SASAmazonBidOrchestrator} auction that
+ * uses the prefetched bid. This class is not thread safe and must only be used from the main thread.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonBannerRefreshScheduler {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonBannerRefreshScheduler.class.getSimpleName();
+
+    /**
+     * Listener notified when the banner must be refreshed
+     */
+    public interface Listener {
+
+        /**
+         * Called on the main thread when the banner must be refreshed, once the next Amazon bid has been prefetched
+         */
+        void onRefresh();
+    }
+
+    // default delay between the Amazon bid prefetch and the refresh
+    public static final long DEFAULT_PREFETCH_LEAD_MS = 3 * SASAmazonBidOrchestrator.DEFAULT_TIMEOUT_MS;
+
+    // default maximum interval between refreshes when Amazon does not bid
+    public static final long DEFAULT_MAX_REFRESH_INTERVAL_MS = 10 * 60 * 1000;
+
+    // Activity hosting the banner view, refreshes are paused while it is stopped
+    private final Activity activity;
+
+    // the banner view, refreshes are paused while it is not visible
+    private final View bannerView;
+
+    // cache the next Amazon bid is prefetched in
+    private final SASAmazonBidCache bidCache;
+
+    // Amazon ad sizes to prefetch, and their slot ID
+    private final DTBAdSize[] adSizes;
+    private final String slotId;
+
+    // interval between refreshes while Amazon bids, in milliseconds
+    private final long refreshIntervalMs;
+
+    // listener in charge of the refresh
+    private final Listener listener;
+
+    // delay between the Amazon bid prefetch and the refresh, in milliseconds
+    private long prefetchLeadMs = DEFAULT_PREFETCH_LEAD_MS;
+
+    // maximum interval between refreshes when Amazon does not bid, in milliseconds
+    private long maxRefreshIntervalMs = DEFAULT_MAX_REFRESH_INTERVAL_MS;
+
+    // whether refreshes are scheduled
+    private boolean started = false;
+
+    // whether the Activity hosting the banner view is started, assumed until it is stopped
+    private boolean activityStarted = true;
+
+    // time of the next refresh, from SystemClock.uptimeMillis()
+    private long nextRefreshTime = 0;
+
+    // whether the Amazon bid of the next refresh has been prefetched
+    private boolean prefetched = false;
+
+    // number of consecutive refreshes without Amazon bid
+    private int consecutiveNoBidCount = 0;
+
+    // randomizes the backoff intervals
+    private final Random random = new Random();
+
+    // gate waiting for the banner view to be visible, null if not waiting
+    @Nullable
+    private SASAmazonViewportGate viewportGate = null;
+
+    // preallocated task prefetching the Amazon bid once the banner view is visible
+    private final Runnable prefetchTask = new Runnable() {
+        @Override
+        public void run() {
+            waitForBannerView(prefetchWhenVisibleTask);
+        }
+    };
+
+    // preallocated task prefetching the Amazon bid, then scheduling the refresh after the prefetch lead
+    private final Runnable prefetchWhenVisibleTask = new Runnable() {
+        @Override
+        public void run() {
+            viewportGate = null;
+            bidCache.prefetch(adSizes);
+            prefetched = true;
+
+            // a refresh delayed while paused still leaves its lead to the prefetch
+            nextRefreshTime = Math.max(nextRefreshTime, SystemClock.uptimeMillis() + prefetchLeadMs);
+            schedule();
+        }
+    };
+
+    // preallocated task refreshing the banner once its view is visible
+    private final Runnable refreshTask = new Runnable() {
+        @Override
+        public void run() {
+            waitForBannerView(refreshWhenVisibleTask);
+        }
+    };
+
+    // preallocated task refreshing the banner, then scheduling the next refresh
+    private final Runnable refreshWhenVisibleTask = new Runnable() {
+        @Override
+        public void run() {
+            viewportGate = null;
+            if (bidCache.hasValidBid(slotId)) {
+                consecutiveNoBidCount = 0;
+            } else {
+                consecutiveNoBidCount++;
+            }
+
+            prefetched = false;
+            nextRefreshTime = SystemClock.uptimeMillis() + getNextRefreshIntervalMs();
+            schedule();
+
+            listener.onRefresh();
+        }
+    };
+
+    // pauses the refreshes while the Activity hosting the banner view is stopped
+    private final Application.ActivityLifecycleCallbacks activityLifecycleCallbacks = new Application.ActivityLifecycleCallbacks() {
+        @Override
+        public void onActivityStarted(Activity startedActivity) {
+            if (startedActivity == activity) {
+                activityStarted = true;
+                schedule();
+            }
+        }
+
+        @Override
+        public void onActivityStopped(Activity stoppedActivity) {
+            if (stoppedActivity == activity) {
+                activityStarted = false;
+                unschedule();
+            }
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity destroyedActivity) {
+            if (destroyedActivity == activity) {
+                destroy();
+            }
+        }
+
+        @Override
+        public void onActivityCreated(Activity createdActivity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity resumedActivity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity pausedActivity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity savedActivity, Bundle outState) {
+        }
+    };
+
+    /**
+     * Creates a {@link SASAmazonBannerRefreshScheduler}, that starts watching the Activity right away. Call
+     * {@link #start()} once the first ad is loaded.
+     *
+     * @param activity          the Activity hosting the banner view
+     * @param bannerView        the banner view
+     * @param bidCache          the cache the next Amazon bid is prefetched in, the one the listener gets its bid from
+     * @param refreshIntervalMs the interval between refreshes while Amazon bids, in milliseconds
+     * @param listener          the listener in charge of the refresh
+     * @param adSizes           the Amazon ad sizes to prefetch, all sharing the same slot ID
+     */
+    public SASAmazonBannerRefreshScheduler(@NonNull Activity activity, @NonNull View bannerView, @NonNull SASAmazonBidCache bidCache,
+                                           long refreshIntervalMs, @NonNull Listener listener, @NonNull DTBAdSize... adSizes) {
+        if (adSizes.length == 0) {
+            throw new IllegalArgumentException("At least one ad size is needed to prefetch an Amazon bid.");
+        }
+        if (refreshIntervalMs <= 0) {
+            throw new IllegalArgumentException("The refresh interval must be strictly positive.");
+        }
+        this.activity = activity;
+        this.bannerView = bannerView;
+        this.bidCache = bidCache;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.listener = listener;
+        this.adSizes = adSizes;
+        this.slotId = adSizes[0].getSlotUUID();
+
+        activity.getApplication().registerActivityLifecycleCallbacks(activityLifecycleCallbacks);
+    }
+
+    /**
+     * Sets the delay between the Amazon bid prefetch and the refresh, {@link #DEFAULT_PREFETCH_LEAD_MS} by default.
+     * It should exceed the usual Amazon latency, and stay below the bid expiry of the cache.
+     *
+     * @param prefetchLeadMs the delay, in milliseconds
+     */
+    public void setPrefetchLeadMs(long prefetchLeadMs) {
+        if (prefetchLeadMs < 0) {
+            throw new IllegalArgumentException("The prefetch lead must be positive.");
+        }
+        this.prefetchLeadMs = prefetchLeadMs;
+    }
+
+    /**
+     * Sets the maximum interval between refreshes when Amazon does not bid, {@link #DEFAULT_MAX_REFRESH_INTERVAL_MS} by default
+     *
+     * @param maxRefreshIntervalMs the maximum interval, in milliseconds
+     */
+    public void setMaxRefreshIntervalMs(long maxRefreshIntervalMs) {
+        this.maxRefreshIntervalMs = maxRefreshIntervalMs;
+    }
+
+    /**
+     * Schedules the next refresh one refresh interval from now. Nothing is done if already started.
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        prefetched = false;
+        nextRefreshTime = SystemClock.uptimeMillis() + refreshIntervalMs;
+        schedule();
+    }
+
+    /**
+     * Cancels the next refresh, until {@link #start()} is called again
+     */
+    public void stop() {
+        started = false;
+        unschedule();
+    }
+
+    /**
+     * Stops the refreshes for good and stops watching the Activity. Called automatically when the Activity is destroyed.
+     */
+    public void destroy() {
+        stop();
+        activity.getApplication().unregisterActivityLifecycleCallbacks(activityLifecycleCallbacks);
+    }
+
+    /**
+     * Returns the number of consecutive refreshes without Amazon bid
+     */
+    public int getConsecutiveNoBidCount() {
+        return consecutiveNoBidCount;
+    }
+
+    /**
+     * Returns the interval before the next refresh: the refresh interval while Amazon bids, then an exponential backoff
+     * randomized between its half and its full value, never below the refresh interval
+     */
+    private long getNextRefreshIntervalMs() {
+        if (consecutiveNoBidCount == 0) {
+            return refreshIntervalMs;
+        }
+        long backoffMs = Math.min(maxRefreshIntervalMs, refreshIntervalMs << Math.min(consecutiveNoBidCount, 16));
+        long intervalMs = Math.max(refreshIntervalMs, backoffMs / 2 + (long) (random.nextDouble() * (backoffMs / 2)));
+        Log.i(TAG, "No Amazon bid for slot " + slotId + " in " + consecutiveNoBidCount + " refreshes, next refresh in " + intervalMs + "ms");
+        return intervalMs;
+    }
+
+    /**
+     * Posts the next step of the refresh cycle, unless stopped or paused
+     */
+    private void schedule() {
+        unschedule();
+        if (!started || !activityStarted) {
+            return;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        if (prefetched) {
+            SCSUtil.getMainLooperHandler().postDelayed(refreshTask, Math.max(0, nextRefreshTime - now));
+        } else {
+            SCSUtil.getMainLooperHandler().postDelayed(prefetchTask, Math.max(0, nextRefreshTime - prefetchLeadMs - now));
+        }
+    }
+
+    /**
+     * Cancels the pending step of the refresh cycle, so that nothing runs while paused
+     */
+    private void unschedule() {
+        SCSUtil.getMainLooperHandler().removeCallbacks(prefetchTask);
+        SCSUtil.getMainLooperHandler().removeCallbacks(refreshTask);
+        if (viewportGate != null) {
+            viewportGate.close();
+            viewportGate = null;
+        }
+    }
+
+    /**
+     * Runs the task once the banner view is visible, right away if it already is
+     */
+    private void waitForBannerView(@NonNull Runnable task) {
+        // the gate runs the task from its constructor if the view is already visible, it is then not kept
+        viewportGate = new SASAmazonViewportGate(bannerView, 0, task);
+        if (viewportGate.isDone()) {
+            viewportGate = null;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.device.ads.DTBAdBannerListener;
+import com.amazon.device.ads.DTBAdSize;
+import com.amazon.device.ads.DTBAdView;
+import com.smartadserver.android.library.util.SASUtil;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is a bounded pool of Amazon banner containers ({@link DTBAdView} wrapped in a {@link LinearLayout}),
+ * keyed by banner size, so that banner refreshes reuse the views of the previous Amazon banner instead of
+ * allocating new ones every time.
+ * <p>
+ * A container borrowed by a {@link SASAmazonBannerBidderAdapter} goes back to the pool when the adapter is released,
+ * typically when the banner is replaced by a new ad. Being detached from its window is not enough, as a RecyclerView or a
+ * configuration change can detach a banner that is still displayed. The pool must be destroyed along with the
+ * SASBannerView it is used with, by calling {@link #destroy()} next to SASBannerView.onDestroy().
+ * <p>
+ * This class is not thread safe and must only be used from the main thread.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonBannerViewPool {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonBannerViewPool.class.getSimpleName();
+
+    // default maximum number of idle containers kept per banner size
+    public static final int DEFAULT_MAX_IDLE_CONTAINERS_PER_SIZE = 2;
+
+    // context used to build the containers
+    private final Context context;
+
+    // maximum number of idle containers kept per banner size
+    private final int maxIdleContainersPerSize;
+
+    // idle containers, by banner size
+    private final Map<Long, ArrayDeque<Container>> idleContainers = new HashMap<>();
+
+    // set once the pool is destroyed
+    private boolean destroyed = false;
+
+    /**
+     * Creates a {@link SASAmazonBannerViewPool} keeping at most {@link #DEFAULT_MAX_IDLE_CONTAINERS_PER_SIZE} idle containers per size
+     */
+    public SASAmazonBannerViewPool(@NonNull Context context) {
+        this(context, DEFAULT_MAX_IDLE_CONTAINERS_PER_SIZE);
+    }
+
+    /**
+     * Creates a {@link SASAmazonBannerViewPool}
+     *
+     * @param context                  the context used to build the banner views, usually the Activity hosting the SASBannerView
+     * @param maxIdleContainersPerSize the maximum number of idle containers kept per banner size, extra containers are destroyed when released
+     */
+    public SASAmazonBannerViewPool(@NonNull Context context, int maxIdleContainersPerSize) {
+        if (maxIdleContainersPerSize < 0) {
+            throw new IllegalArgumentException("The maximum number of idle containers cannot be negative.");
+        }
+        this.context = context;
+        this.maxIdleContainersPerSize = maxIdleContainersPerSize;
+    }
+
+    /**
+     * Borrows a container for the given banner size, building one if none is idle. Once the pool is destroyed, an
+     * unpooled container is built, that is destroyed when given back.
+     *
+     * @param adSize   the size of the Amazon banner
+     * @param listener the listener that will receive the events of the Amazon banner until the container is released
+     */
+    @NonNull
+    Container acquire(@NonNull DTBAdSize adSize, @NonNull DTBAdBannerListener listener) {
+        long key = getKey(adSize);
+
+        Container container = null;
+        ArrayDeque<Container> containers = destroyed ? null : idleContainers.get(key);
+        if (containers != null) {
+            container = containers.poll();
+        }
+        if (destroyed) {
+            Log.i(TAG, "Amazon banner view pool destroyed, building an unpooled container");
+        }
+
+        if (container == null) {
+            container = new Container(key, adSize);
+        } else if (container.linearLayout.getParent() instanceof ViewGroup) {
+            // an idle container may still be in the view hierarchy it was displayed in
+            ((ViewGroup) container.linearLayout.getParent()).removeView(container.linearLayout);
+        }
+
+        container.borrow(listener);
+        return container;
+    }
+
+    /**
+     * Gives a container back to the pool, or destroys it if the pool is full or destroyed
+     */
+    void release(@NonNull Container container) {
+        container.detachListener();
+
+        if (destroyed) {
+            container.destroy();
+            return;
+        }
+
+        ArrayDeque<Container> containers = idleContainers.get(container.key);
+        if (containers == null) {
+            containers = new ArrayDeque<>();
+            idleContainers.put(container.key, containers);
+        }
+
+        if (containers.size() >= maxIdleContainersPerSize) {
+            container.destroy();
+        } else {
+            containers.offer(container);
+        }
+    }
+
+    /**
+     * Destroys all idle containers, while keeping the pool usable
+     */
+    public void evictAll() {
+        for (ArrayDeque<Container> containers : idleContainers.values()) {
+            for (Container container : containers) {
+                container.destroy();
+            }
+            containers.clear();
+        }
+    }
+
+    /**
+     * Destroys all idle containers and makes sure containers still in use are destroyed when released.
+     * Must be called when the SASBannerView using this pool is destroyed.
+     */
+    public void destroy() {
+        destroyed = true;
+        evictAll();
+        idleContainers.clear();
+    }
+
+    /**
+     * Returns the pool key for the given banner size
+     */
+    private static long getKey(@NonNull DTBAdSize adSize) {
+        return ((long) adSize.getWidth() << 32) | (adSize.getHeight() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A pooled Amazon banner view and its parent layout
+     */
+    class Container implements DTBAdBannerListener {
+
+        // pool key of this container
+        private final long key;
+
+        // the Amazon banner view
+        final DTBAdView amazonBannerView;
+
+        // parent view group of the Amazon banner view, for proper banner sizing
+        final LinearLayout linearLayout;
+
+        // listener receiving the Amazon banner events while the container is borrowed
+        @Nullable
+        private DTBAdBannerListener listener;
+
+        // whether the container is borrowed by a bidder adapter
+        private boolean borrowed = false;
+
+        // number of times the container has been borrowed, identifying the current loan
+        private int loan = 0;
+
+        Container(long key, @NonNull DTBAdSize adSize) {
+            this.key = key;
+
+            // create Amazon banner ad view...
+            amazonBannerView = new DTBAdView(context, this);
+
+            // ...and wrap it in the parent Layout with proper size
+            linearLayout = new LinearLayout(context);
+            linearLayout.addView(amazonBannerView,
+                    new LinearLayout.LayoutParams(SASUtil.getDimensionInPixels(adSize.getWidth(), context.getResources()),
+                            SASUtil.getDimensionInPixels(adSize.getHeight(), context.getResources())));
+        }
+
+        private void borrow(@NonNull DTBAdBannerListener listener) {
+            this.listener = listener;
+            this.borrowed = true;
+            this.loan++;
+        }
+
+        private void detachListener() {
+            this.listener = null;
+            this.borrowed = false;
+        }
+
+        /**
+         * Returns the identifier of the current loan of this container, to pass to {@link #giveBack(int)}
+         */
+        int getLoan() {
+            return loan;
+        }
+
+        /**
+         * Stops forwarding the Amazon banner events to the bidder adapter that borrowed this container, and gives the
+         * container back to the pool. It is removed from the view hierarchy it is displayed in when borrowed again.
+         * Nothing is done if the given loan is over, so that a former borrower cannot give back the container of another adapter.
+         *
+         * @param loan the identifier of the loan, as returned by {@link #getLoan()} when the container was borrowed
+         */
+        void giveBack(int loan) {
+            if (!borrowed || loan != this.loan) {
+                return;
+            }
+            Log.i(TAG, "Amazon banner container released to the pool");
+            release(this);
+        }
+
+        private void destroy() {
+            listener = null;
+            linearLayout.removeAllViews();
+            amazonBannerView.destroy();
+        }
+
+        ///////////////////////////////////////////////////////////
+        // AMAZON BANNER EVENTS FORWARDING
+        ///////////////////////////////////////////////////////////
+
+        @Override
+        public void onAdLoaded(View view) {
+            if (listener != null) {
+                listener.onAdLoaded(view);
+            }
+        }
+
+        @Override
+        public void onAdFailed(View view) {
+            if (listener != null) {
+                listener.onAdFailed(view);
+            }
+        }
+
+        @Override
+        public void onAdClicked(View view) {
+            if (listener != null) {
+                listener.onAdClicked(view);
+            }
+        }
+
+        @Override
+        public void onAdLeftApplication(View view) {
+            if (listener != null) {
+                listener.onAdLeftApplication(view);
+            }
+        }
+
+        @Override
+        public void onAdOpen(View view) {
+            if (listener != null) {
+                listener.onAdOpen(view);
+            }
+        }
+
+        @Override
+        public void onAdClosed(View view) {
+            if (listener != null) {
+                listener.onAdClosed(view);
+            }
+        }
+
+        @Override
+        public void onImpressionFired(View view) {
+            if (listener != null) {
+                listener.onImpressionFired(view);
+            }
+        }
+    }
+}
@@ -2,14 +2,16 @@ package com.smartadserver.android.library.thirdpartybidding.amazon;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import android.util.Log;
+import android.os.SystemClock;
 
 import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
 import com.amazon.device.ads.SDKUtilities;
 import com.smartadserver.android.library.thirdpartybidding.SASBidderAdapter;
+import com.smartadserver.android.library.thirdpartybidding.common.SASBaseBidderAdapter;
 
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class is an abstract implementation of the {@link SASBidderAdapter} interface for the Amazon Mobile Match Buy SDK
@@ -17,188 +19,286 @@ import java.util.Map;
  * bidding outcome to the Smart AdServer ad call.
  * Source : https://github.com/smartadserver/smart-inapp-bidding-android
  */
-public abstract class SASAmazonBaseBidderAdapter implements SASBidderAdapter {
+public abstract class SASAmazonBaseBidderAdapter extends SASBaseBidderAdapter {
 
-    // tag for logging purposes
-    private static final String TAG = SASAmazonBaseBidderAdapter.class.getSimpleName();
+    // Using 'Amazon' as adapter and SSP name since Amazon will never return the real name of the winning ssp
+    private static final String ADAPTER_NAME = "Amazon";
 
-    //////////////////////////////
-    // SASBidderAdapter variables
-    /////////////////////////////
+    // default maximum age of the bid, after which the adapter refuses to render it
+    public static final long DEFAULT_MAX_BID_AGE_MS = SASAmazonBidCache.DEFAULT_BID_EXPIRY_MS;
 
-    // the name of the winning SSP
-    private String winningSSPName;
+    // message reported to the Smart SDK when an expired bid is loaded
+    static final String BID_EXPIRED_MESSAGE = "Amazon bid has expired and cannot be displayed";
 
-    // the winning creative ID
-    private String winningCreativeId;
+    // message reported to the Smart SDK when a released adapter is loaded
+    static final String ADAPTER_RELEASED_MESSAGE = "Amazon bidder adapter has been released and cannot display its ad";
 
-    // the winning deal ID
-    private String dealId;
-
-    // the keyword representing the pricepoint
-    private String keyword;
-
-    //////////////////////////////
-    // Amazon creative variables
-    /////////////////////////////
-    private String amzn_h = "";
-    private String amzn_b = "";
-    private String amznslots = "";
+    // the Amazon bid parameters extracted from the ad response, whose pricepoint may be changed until read by the Smart SDK
+    volatile SASAmazonBid bid;
 
     // BidInfo string used for creative rendering
     protected String bidInfos = "";
 
+    // optional price table shared by all adapters, to compete on price instead of keywords
+    private static volatile SASAmazonPriceTable priceTable = null;
+
+    // the CPM of the bid, resolved from the price table
+    private volatile double price;
+
+    // the currency of the CPM, null if the pricepoint is not in the price table
+    private volatile String currency;
+
+    // set once the Smart SDK has read the keyword or the price of the bid, which cannot change afterwards
+    private volatile boolean pricepointCommitted = false;
+
+    // reception time of the bid, from SystemClock.elapsedRealtime()
+    private volatile long bidTimestamp = SystemClock.elapsedRealtime();
+
+    // maximum age of the bid, in milliseconds
+    private volatile long maxBidAgeMs = DEFAULT_MAX_BID_AGE_MS;
+
+    // set once the adapter is released
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    // set once the adapter is destroyed
+    private final AtomicBoolean destroyed = new AtomicBoolean(false);
+
+    // entry of the adapter in the leak tracker, null if not tracked
+    @Nullable
+    private final SASAmazonLeakTracker.TrackedAdapter trackedAdapter;
+
+    // preallocated task releasing the rendering resources on the main thread
+    private final Runnable releaseTask = new Runnable() {
+        @Override
+        public void run() {
+            releaseResources(destroyed.get());
+        }
+    };
 
     /**
      * Creates a {@link SASAmazonBaseBidderAdapter} from Amazon ad response
      */
     public SASAmazonBaseBidderAdapter(DTBAdResponse adResponse) throws IllegalArgumentException {
+        this(checkValid(parseResponse(adResponse)));
+    }
 
-        // If no ads in the adResponse, return nil, there is no winning ad.
-        if (adResponse.getAdCount() == 0) {
-            throw new IllegalArgumentException("No ad found in Amazon's response.");
-        }
+    /**
+     * Creates a {@link SASAmazonBaseBidderAdapter} from already parsed, valid Amazon bid parameters
+     */
+    SASAmazonBaseBidderAdapter(SASAmazonBid bid) {
+        super(ADAPTER_NAME);
+        this.bid = bid;
+        this.trackedAdapter = SASAmazonLeakTracker.track(this, bid.slotId);
 
-        // store ad response attributes
-        this.winningSSPName = "Amazon"; // Using 'Amazon' as SSP name since Amazon will never return the real name of the winning ssp
-        this.winningCreativeId = adResponse.getBidId(); // TODO deprecated but no info on what we are supposed to use instead :/
-        this.dealId = null;
+        // Bid infos, used for rendering
+        this.bidInfos = bid.bidInfo;
 
-        // extract Amazon creative parameters
-        Map<String, List<String>> customParams = adResponse.getDefaultDisplayAdsRequestCustomParams();
+        resolvePrice();
+    }
 
-        // Keyword
-        if (customParams.get("amznslots") != null && customParams.get("amznslots").size() > 0) {
-            amznslots = customParams.get("amznslots").get(0);
-            keyword = "amznslots=" + customParams.get("amznslots").get(0);
+    /**
+     * Resolves the CPM of the pricepoint of the bid, if known from the price table
+     */
+    private void resolvePrice() {
+        SASAmazonPriceTable priceTable = SASAmazonBaseBidderAdapter.priceTable;
+        Double price = priceTable != null ? priceTable.getPrice(bid.amznslots) : null;
+        if (price != null) {
+            this.price = price;
+            this.currency = priceTable.getCurrency();
         } else {
-            throw new IllegalArgumentException("No pricepoint found for Amazon's response.");
+            this.price = 0.0;
+            this.currency = null;
         }
+    }
 
-        // Store Amazon creative parameters
-        if (customParams.get("amzn_h") != null && customParams.get("amzn_h").size() > 0) {
-            amzn_h = customParams.get("amzn_h").get(0);
-        }
-        if (customParams.get("amzn_b") != null && customParams.get("amzn_b").size() > 0) {
-            amzn_b = customParams.get("amzn_b").get(0);
+    /**
+     * Changes the pricepoint of the bid for another one of the same Amazon response, typically the one of the ad size
+     * that will be rendered. Nothing is done once the Smart SDK has read the keyword or the price of the bid.
+     *
+     * @return whether the pricepoint was changed
+     */
+    boolean setPricepoint(@NonNull String amznslots) {
+        if (pricepointCommitted) {
+            return false;
         }
+        bid = bid.withPricepoint(amznslots);
+        resolvePrice();
+        return true;
+    }
 
-        // Bid infos, used for rendering
-        if (SDKUtilities.getBidInfo(adResponse) != null) {
-            this.bidInfos = SDKUtilities.getBidInfo(adResponse);
-        } else {
-            throw new IllegalArgumentException("No bid info found for Amazon's response, we will not be able to render the ad.");
+    /**
+     * Sets the price table used by all Amazon bidder adapters created afterwards.
+     * Adapters whose pricepoint is in the table will compete on price with the CPM found in the table, the others
+     * will keep competing on keyword.
+     *
+     * @param priceTable the price table, or null to always compete on keyword
+     */
+    public static void setPriceTable(@Nullable SASAmazonPriceTable priceTable) {
+        SASAmazonBaseBidderAdapter.priceTable = priceTable;
+    }
+
+    /**
+     * Sets the maximum age of the bid of this adapter. Once expired, the adapter reports a failure to the Smart SDK
+     * instead of rendering the Amazon creative.
+     *
+     * @param maxBidAgeMs the maximum age of the bid, in milliseconds
+     */
+    public void setMaxBidAge(long maxBidAgeMs) {
+        if (maxBidAgeMs <= 0) {
+            throw new IllegalArgumentException("The maximum bid age must be strictly positive.");
         }
+        this.maxBidAgeMs = maxBidAgeMs;
+    }
 
+    /**
+     * Returns the time elapsed since the Amazon bid of this adapter was received, in milliseconds
+     */
+    public long getBidAgeMs() {
+        return SystemClock.elapsedRealtime() - bidTimestamp;
     }
 
-    ///////////////////////////////////////////////////////////
-    // ADAPTER INFORMATION
-    ///////////////////////////////////////////////////////////
+    /**
+     * Returns whether the Amazon bid of this adapter is older than its maximum age and must not be rendered anymore
+     */
+    public boolean isExpired() {
+        return getBidAgeMs() > maxBidAgeMs;
+    }
 
-    @NonNull
-    @Override
-    public String getAdapterName() {
-        return "Amazon";
+    /**
+     * Stops forwarding the events of the Amazon creative to the Smart SDK. Safe to call from any thread, any number of times.
+     */
+    public abstract void detach();
+
+    /**
+     * Releases the references of this adapter to the Smart SDK listener, the Amazon creative views and the context, so
+     * that keeping a reference to the adapter does not keep the screen it rendered in alive. Pooled banner views go back
+     * to their pool. Call it once the adapter is no longer used: bid lost, banner replaced, interstitial closed...
+     * The adapter cannot render its ad anymore. Safe to call from any thread, any number of times.
+     */
+    public void release() {
+        detach();
+        if (released.compareAndSet(false, true)) {
+            SASAmazonLeakTracker.untrack(trackedAdapter);
+            SASAmazonMainThreadDispatcher.dispatch(releaseTask);
+        }
     }
 
-    @NonNull
-    @Override
-    public CompetitionType getCompetitionType() {
-        return CompetitionType.Keyword;
+    /**
+     * Releases this adapter like {@link #release()}, also destroying the Amazon creative views it owns instead of
+     * waiting for them to be garbage collected. Call it when the Smart banner view or interstitial manager the adapter
+     * was passed to is destroyed. Safe to call from any thread, any number of times.
+     */
+    public void destroy() {
+        if (destroyed.compareAndSet(false, true)) {
+            // a release already done only dropped the references, the views it did not destroy are gone with them
+            release();
+        }
     }
 
-    @NonNull
-    @Override
-    public RenderingType getRenderingType() {
-        return RenderingType.Mediation;
+    /**
+     * Returns whether this adapter has been released or destroyed
+     */
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    /**
+     * Releases the rendering resources of this adapter. Called once, on the main thread.
+     *
+     * @param destroyViews whether the Amazon creative views owned by the adapter must be destroyed
+     */
+    abstract void releaseResources(boolean destroyViews);
+
+    /**
+     * Sets the time at which the Amazon bid was received, for adapters created from a cached response
+     *
+     * @param bidTimestamp the reception time, from SystemClock.elapsedRealtime()
+     */
+    void setBidTimestamp(long bidTimestamp) {
+        this.bidTimestamp = bidTimestamp;
+    }
+
+    /**
+     * Extracts the Amazon bid parameters from the Amazon ad response in a single pass, without throwing.
+     * The keyword is only built if requested by the Smart SDK.
+     *
+     * @return the parsed bid, or a shared rejected bid if the response cannot be used
+     */
+    static SASAmazonBid parseResponse(DTBAdResponse adResponse) {
+
+        // If no ads in the adResponse, there is no winning ad.
+        if (adResponse.getAdCount() == 0) {
+            return SASAmazonBid.rejected(SASAmazonBidRejectionReason.NO_AD);
+        }
+
+        List<DTBAdSize> adSizes = adResponse.getDTBAds();
+        String slotId = adSizes != null && adSizes.size() > 0 ? adSizes.get(0).getSlotUUID() : null;
+
+        return SASAmazonBid.tryParse(slotId,
+                adResponse.getBidId(), // TODO deprecated but no info on what we are supposed to use instead :/
+                adResponse.getDefaultDisplayAdsRequestCustomParams(),
+                SDKUtilities.getBidInfo(adResponse));
     }
 
+    /**
+     * Returns the given bid if valid, throws otherwise
+     */
+    private static SASAmazonBid checkValid(SASAmazonBid bid) throws IllegalArgumentException {
+        if (bid.rejectionReason != null) {
+            throw new IllegalArgumentException(bid.rejectionReason.getMessage());
+        }
+        return bid;
+    }
 
     ///////////////////////////////////////////////////////////
     // WINNING CREATIVE INFORMATION
     ///////////////////////////////////////////////////////////
 
-    @NonNull
-    @Override
-    public String getWinningSSPName() {
-        return winningSSPName;
-    }
-
     @NonNull
     @Override
     public String getWinningCreativeId() {
-        return winningCreativeId;
+        return bid.bidId;
     }
 
     @Override
     public double getPrice() {
-        return 0.0;
+        pricepointCommitted = true;
+        return price;
     }
 
     @Nullable
     @Override
     public String getCurrency() {
-        return null;
+        pricepointCommitted = true;
+        return currency;
     }
 
     @Nullable
     @Override
     public String getKeyword() {
-        return keyword;
+        pricepointCommitted = true;
+        return bid.getKeyword();
     }
 
+    /**
+     * Returns the Amazon slot ID of the bid
+     */
     @Nullable
     @Override
-    public String getDealId() {
-        return dealId;
+    protected String getAdUnitId() {
+        return bid.slotId;
     }
 
     ///////////////////////////////////////////////////////////
     // WIN NOTIFICATION CALLBACK
     ///////////////////////////////////////////////////////////
 
+    /**
+     * Overriden to release the adapter, that will never render its ad
+     */
     @Override
     public void primarySDKLostBidCompetition() {
-        Log.i(TAG, "primarySDKLostBidCompetition() called");
-
-        // Nothing to do here unless you want to log some information.
-    }
-
-    ///////////////////////////////////////////////////////////
-    // SMART DISPLAY SDK CREATIVE RENDERING
-    ///////////////////////////////////////////////////////////
-
-    @Nullable
-    @Override
-    public String getBidderWinningAdMarkup() {
-        return null;
-    }
-
-    @Override
-    public void primarySDKDisplayedBidderAd() {
-        Log.i(TAG, "primarySDKDisplayedBidderAd() called");
-
-        // Nothing to do here this method will not be called on Mediation rendering type.
-    }
-
-    @Override
-    public void primarySDKClickedBidderAd() {
-        Log.i(TAG, "primarySDKClickedBidderAd() called");
-
-        // Nothing to do here this method will not be called on Mediation rendering type.
-    }
-
-    ///////////////////////////////////////////////////////////
-    // THIRD PARTY CREATIVE RENDERING
-    ///////////////////////////////////////////////////////////
-
-    @Override
-    public void primarySDKRequestedThirdPartyRendering() {
-        Log.i(TAG, "primarySDKRequestedThirdPartyRendering() called");
-
-        // Nothing to do here this method will not be called on Mediation rendering type.
+        super.primarySDKLostBidCompetition();
+        release();
     }
-
-
 }
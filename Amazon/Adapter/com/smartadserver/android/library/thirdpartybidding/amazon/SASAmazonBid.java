@@ -0,0 +1,145 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is an immutable record of the Amazon bid parameters needed by the bidder adapters, extracted with a single
+ * lookup in the custom parameters of an Amazon ad response.
+ * It only relies on plain Java types so that it can be parsed on any thread, and benchmarked outside of Android.
+ * <p>
+ * Invalid responses are represented by shared rejected instances carrying a {@link SASAmazonBidRejectionReason},
+ * so that rejecting a response neither allocates nor builds an exception.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+final class SASAmazonBid {
+
+    // Amazon custom parameter key of the pricepoint
+    static final String AMZNSLOTS = "amznslots";
+
+    // prefix of the keyword representing the pricepoint
+    private static final String KEYWORD_PREFIX = AMZNSLOTS + "=";
+
+    // shared rejected instances, by rejection reason ordinal
+    private static final SASAmazonBid[] REJECTED_BIDS;
+
+    static {
+        SASAmazonBidRejectionReason[] reasons = SASAmazonBidRejectionReason.values();
+        REJECTED_BIDS = new SASAmazonBid[reasons.length];
+        for (SASAmazonBidRejectionReason reason : reasons) {
+            REJECTED_BIDS[reason.ordinal()] = new SASAmazonBid(null, null, null, null, reason);
+        }
+    }
+
+    // the Amazon slot ID of the bid
+    final String slotId;
+
+    // the winning creative ID
+    final String bidId;
+
+    // the Amazon pricepoint
+    final String amznslots;
+
+    // BidInfo string used for creative rendering
+    final String bidInfo;
+
+    // the reason why the response was rejected, null for a valid bid
+    final SASAmazonBidRejectionReason rejectionReason;
+
+    // the keyword representing the pricepoint, built on first access only
+    private String keyword;
+
+    private SASAmazonBid(String slotId, String bidId, String amznslots, String bidInfo, SASAmazonBidRejectionReason rejectionReason) {
+        this.slotId = slotId;
+        this.bidId = bidId;
+        this.amznslots = amznslots;
+        this.bidInfo = bidInfo;
+        this.rejectionReason = rejectionReason;
+    }
+
+    /**
+     * Returns the shared rejected instance for the given rejection reason
+     */
+    static SASAmazonBid rejected(SASAmazonBidRejectionReason rejectionReason) {
+        return REJECTED_BIDS[rejectionReason.ordinal()];
+    }
+
+    /**
+     * Extracts the Amazon bid parameters from the custom parameters of an Amazon ad response, without throwing
+     *
+     * @param slotId       the Amazon slot ID of the bid
+     * @param bidId        the ID of the Amazon bid
+     * @param customParams the default display custom parameters of the Amazon ad response
+     * @param bidInfo      the bid info of the Amazon ad response
+     * @return the parsed bid, or a shared rejected instance if there is no pricepoint or no bid info in the response
+     */
+    static SASAmazonBid tryParse(String slotId, String bidId, Map<String, List<String>> customParams, String bidInfo) {
+        String amznslots = customParams != null ? firstValue(customParams.get(AMZNSLOTS)) : null;
+
+        if (amznslots == null) {
+            return rejected(SASAmazonBidRejectionReason.NO_PRICEPOINT);
+        }
+
+        if (bidInfo == null) {
+            return rejected(SASAmazonBidRejectionReason.NO_BID_INFO);
+        }
+
+        return new SASAmazonBid(slotId, bidId, amznslots, bidInfo, null);
+    }
+
+    /**
+     * Returns the same bid with another pricepoint of the same Amazon response, typically the one of another ad size
+     */
+    SASAmazonBid withPricepoint(String amznslots) {
+        if (amznslots.equals(this.amznslots)) {
+            return this;
+        }
+        return new SASAmazonBid(slotId, bidId, amznslots, bidInfo, rejectionReason);
+    }
+
+    /**
+     * Returns the pricepoint of the given ad size among the pricepoints of an Amazon response, or null if Amazon did
+     * not bid on this size. Amazon pricepoints encode the size of their bid, for instance 'o320x50p12'.
+     *
+     * @param pricepoints the values of the pricepoint custom parameter of the Amazon ad response
+     * @param width       the width of the ad size
+     * @param height      the height of the ad size
+     */
+    static String findPricepoint(List<String> pricepoints, int width, int height) {
+        if (pricepoints == null) {
+            return null;
+        }
+        String sizeToken = width + "x" + height + "p";
+        for (String pricepoint : pricepoints) {
+            int index = pricepoint != null ? pricepoint.indexOf(sizeToken) : -1;
+            // the size must not be the end of a larger number, 1320x50 is not 320x50
+            if (index > 0 && !Character.isDigit(pricepoint.charAt(index - 1))) {
+                return pricepoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the keyword representing the pricepoint, as expected by the Smart ad server
+     */
+    String getKeyword() {
+        // benign race: the keyword is an immutable String that is always computed to the same value
+        String keyword = this.keyword;
+        if (keyword == null) {
+            keyword = KEYWORD_PREFIX + amznslots;
+            this.keyword = keyword;
+        }
+        return keyword;
+    }
+
+    /**
+     * Returns the first value of a custom parameter, or null if there is none
+     */
+    private static String firstValue(List<String> values) {
+        if (values != null && values.size() > 0) {
+            return values.get(0);
+        }
+        return null;
+    }
+}
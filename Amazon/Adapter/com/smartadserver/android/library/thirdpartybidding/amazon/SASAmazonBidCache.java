@@ -0,0 +1,265 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.device.ads.AdError;
+import com.amazon.device.ads.DTBAdCallback;
+import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class prefetches Amazon header bidding responses per slot ID and keeps them for a configurable
+ * amount of time, so that a ready to use {@link SASAmazonBannerBidderAdapter} or {@link SASAmazonInterstitialBidderAdapter}
+ * can be handed out right away when the Smart ad call is made, instead of waiting for the Amazon round-trip.
+ * Expired responses are discarded when accessed, or periodically by a {@link SASAmazonBidSweeper}.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonBidCache implements SASAmazonBidHolder {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonBidCache.class.getSimpleName();
+
+    // default expiry delay of a cached Amazon response
+    public static final long DEFAULT_BID_EXPIRY_MS = 4 * 60 * 1000;
+
+    // cached Amazon responses, by slot ID
+    private final Map<String, CachedBid> cachedBids = new HashMap<>();
+
+    // slot IDs for which an Amazon request is currently pending
+    private final Set<String> pendingSlotIds = new HashSet<>();
+
+    // expiry delay of cached Amazon responses, in milliseconds
+    private final long bidExpiryMs;
+
+    // optional journal recording the outcome of each prefetch request
+    @Nullable
+    private volatile SASAmazonBidJournal bidJournal = null;
+
+    /**
+     * Creates a {@link SASAmazonBidCache} keeping Amazon responses for {@link #DEFAULT_BID_EXPIRY_MS} milliseconds
+     */
+    public SASAmazonBidCache() {
+        this(DEFAULT_BID_EXPIRY_MS);
+    }
+
+    /**
+     * Creates a {@link SASAmazonBidCache} keeping Amazon responses for the given amount of time
+     *
+     * @param bidExpiryMs the delay after which a cached Amazon response is discarded, in milliseconds
+     */
+    public SASAmazonBidCache(long bidExpiryMs) {
+        if (bidExpiryMs <= 0) {
+            throw new IllegalArgumentException("The bid expiry delay must be strictly positive.");
+        }
+        this.bidExpiryMs = bidExpiryMs;
+    }
+
+    /**
+     * Sets the journal recording the outcome of each prefetch request, to warm up the next launches of the application.
+     *
+     * @param bidJournal the bid journal, or null to record nothing
+     */
+    public void setBidJournal(@Nullable SASAmazonBidJournal bidJournal) {
+        this.bidJournal = bidJournal;
+    }
+
+    /**
+     * Requests an Amazon bid for the given ad sizes and stores the response in the cache.
+     * All sizes are expected to share the same slot ID. Nothing is done if a valid bid is already cached
+     * or if a request is already pending for this slot ID, including an auction of a {@link SASAmazonBidOrchestrator}
+     * for the same ad sizes (its bid, if late, can be cached by the orchestrator).
+     *
+     * @param adSizes the Amazon ad sizes to request
+     */
+    public void prefetch(@NonNull DTBAdSize... adSizes) {
+        if (adSizes.length == 0) {
+            throw new IllegalArgumentException("At least one ad size is needed to prefetch an Amazon bid.");
+        }
+
+        final String slotId = adSizes[0].getSlotUUID();
+
+        synchronized (this) {
+            if (pendingSlotIds.contains(slotId) || getValidBid(slotId) != null
+                    || SASAmazonRequestCoalescer.getSharedInstance().isPending(adSizes)) {
+                return;
+            }
+            pendingSlotIds.add(slotId);
+        }
+
+        final long requestStartNanos = SASAmazonBidMetrics.now();
+        final SASAmazonBidJournal bidJournal = this.bidJournal;
+        final DTBAdSize[] requestedAdSizes = adSizes;
+
+        // a request that cannot be sent must not leave the slot pending, which would block its prefetches for good
+        try {
+            SASAmazonRequestCoalescer.getSharedInstance().loadAd(new DTBAdCallback() {
+                @Override
+                public void onSuccess(DTBAdResponse dtbAdResponse) {
+                    SASAmazonBidMetrics.reportEnd(slotId, SASAmazonBidMetrics.Stage.AMAZON_REQUEST_SUCCEEDED, requestStartNanos);
+                    Log.i(TAG, "Amazon bid prefetched for slot " + slotId);
+                    if (bidJournal != null) {
+                        bidJournal.recordBid(dtbAdResponse, (SASAmazonBidMetrics.now() - requestStartNanos) / 1000000);
+                    }
+                    synchronized (SASAmazonBidCache.this) {
+                        pendingSlotIds.remove(slotId);
+                        cachedBids.put(slotId, new CachedBid(dtbAdResponse, SystemClock.elapsedRealtime()));
+                    }
+                }
+
+                @Override
+                public void onFailure(AdError adError) {
+                    SASAmazonBidMetrics.reportEnd(slotId, SASAmazonBidMetrics.Stage.AMAZON_REQUEST_FAILED, requestStartNanos);
+                    Log.i(TAG, "Amazon bid prefetch failed for slot " + slotId + ": " + adError.getMessage());
+                    if (bidJournal != null) {
+                        bidJournal.recordNoBid(requestedAdSizes, (SASAmazonBidMetrics.now() - requestStartNanos) / 1000000);
+                    }
+                    synchronized (SASAmazonBidCache.this) {
+                        pendingSlotIds.remove(slotId);
+                    }
+                }
+            }, adSizes);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingSlotIds.remove(slotId);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns whether a non expired Amazon response is cached for the given slot ID
+     */
+    public synchronized boolean hasValidBid(@NonNull String slotId) {
+        return getValidBid(slotId) != null;
+    }
+
+    /**
+     * Removes the cached Amazon response for the given slot ID and wraps it in a {@link SASAmazonBannerBidderAdapter}.
+     *
+     * @return the bidder adapter, or null if there is no valid cached response for this slot ID
+     */
+    @Nullable
+    public SASAmazonBannerBidderAdapter popBannerBidderAdapter(@NonNull String slotId, @NonNull Context context) {
+        CachedBid cachedBid = popBid(slotId);
+        if (cachedBid == null) {
+            return null;
+        }
+
+        SASAmazonBidderAdapterResult<SASAmazonBannerBidderAdapter> result = SASAmazonBannerBidderAdapter.create(cachedBid.adResponse, context);
+        SASAmazonBannerBidderAdapter bidderAdapter = result.getBidderAdapter();
+        if (bidderAdapter != null) {
+            // the bid ages from its reception, not from the creation of the adapter
+            bidderAdapter.setBidTimestamp(cachedBid.timestamp);
+        } else if (result.getRejectionReason() != null) {
+            Log.i(TAG, "Cached Amazon bid for slot " + slotId + " cannot be used: " + result.getRejectionReason().getMessage());
+        }
+        return bidderAdapter;
+    }
+
+    /**
+     * Removes the cached Amazon response for the given slot ID and wraps it in a {@link SASAmazonInterstitialBidderAdapter}.
+     *
+     * @return the bidder adapter, or null if there is no valid cached response for this slot ID
+     */
+    @Nullable
+    public SASAmazonInterstitialBidderAdapter popInterstitialBidderAdapter(@NonNull String slotId, @NonNull Context context) {
+        CachedBid cachedBid = popBid(slotId);
+        if (cachedBid == null) {
+            return null;
+        }
+
+        SASAmazonBidderAdapterResult<SASAmazonInterstitialBidderAdapter> result = SASAmazonInterstitialBidderAdapter.create(cachedBid.adResponse, context);
+        SASAmazonInterstitialBidderAdapter bidderAdapter = result.getBidderAdapter();
+        if (bidderAdapter != null) {
+            // the bid ages from its reception, not from the creation of the adapter
+            bidderAdapter.setBidTimestamp(cachedBid.timestamp);
+        } else if (result.getRejectionReason() != null) {
+            Log.i(TAG, "Cached Amazon bid for slot " + slotId + " cannot be used: " + result.getRejectionReason().getMessage());
+        }
+        return bidderAdapter;
+    }
+
+    /**
+     * Stores an Amazon response obtained outside of this cache, for instance a bid that arrived too late to be used.
+     */
+    public synchronized void put(@NonNull String slotId, @NonNull DTBAdResponse adResponse) {
+        cachedBids.put(slotId, new CachedBid(adResponse, SystemClock.elapsedRealtime()));
+    }
+
+    /**
+     * Discards all cached Amazon responses
+     */
+    public synchronized void clear() {
+        cachedBids.clear();
+    }
+
+    /**
+     * Discards all expired Amazon responses
+     */
+    @Override
+    public synchronized void removeExpiredBids() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Map.Entry<String, CachedBid>> iterator = cachedBids.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CachedBid> entry = iterator.next();
+            if (now - entry.getValue().timestamp > bidExpiryMs) {
+                Log.i(TAG, "Cached Amazon bid for slot " + entry.getKey() + " has expired");
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the cached Amazon response for the given slot ID, if not expired
+     */
+    @Nullable
+    private synchronized CachedBid popBid(@NonNull String slotId) {
+        CachedBid cachedBid = getValidBid(slotId);
+        if (cachedBid != null) {
+            cachedBids.remove(slotId);
+        }
+        return cachedBid;
+    }
+
+    /**
+     * Returns the cached bid for the given slot ID, discarding it if expired. Must be called while holding the lock.
+     */
+    @Nullable
+    private CachedBid getValidBid(@NonNull String slotId) {
+        CachedBid cachedBid = cachedBids.get(slotId);
+        if (cachedBid != null && SystemClock.elapsedRealtime() - cachedBid.timestamp > bidExpiryMs) {
+            Log.i(TAG, "Cached Amazon bid for slot " + slotId + " has expired");
+            cachedBids.remove(slotId);
+            cachedBid = null;
+        }
+        return cachedBid;
+    }
+
+    /**
+     * An Amazon response along with the time at which it was received
+     */
+    private static class CachedBid {
+
+        // the cached Amazon response
+        final DTBAdResponse adResponse;
+
+        // reception time of the response, from SystemClock.elapsedRealtime()
+        final long timestamp;
+
+        CachedBid(DTBAdResponse adResponse, long timestamp) {
+            this.adResponse = adResponse;
+            this.timestamp = timestamp;
+        }
+    }
+}
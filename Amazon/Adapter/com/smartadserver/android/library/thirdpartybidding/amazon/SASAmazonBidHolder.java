@@ -0,0 +1,14 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+/**
+ * Interface implemented by the classes holding Amazon bids ahead of their use, such as {@link SASAmazonBidCache} and
+ * {@link SASAmazonInterstitialPool}, so that their expired bids can be dropped periodically by a {@link SASAmazonBidSweeper}.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public interface SASAmazonBidHolder {
+
+    /**
+     * Drops the expired bids held. Called from a background thread, implementations must be thread safe.
+     */
+    void removeExpiredBids();
+}
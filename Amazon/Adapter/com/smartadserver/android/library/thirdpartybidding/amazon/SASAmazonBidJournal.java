@@ -0,0 +1,395 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
+import com.amazon.device.ads.SDKUtilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class keeps a compact journal of the latest Amazon requests on disk (slot ID, returned size and pricepoint,
+ * latency and fill outcome), so that the next launch of the application does not start cold:
+ * <ul>
+ * <li>{@link #prefetchRecentSlots(SASAmazonBidCache)} requests bids right at launch for the slots used recently, with
+ * the sizes Amazon actually filled, so that the first banner does not wait for the Amazon round-trip</li>
+ * <li>{@link #warmUp(SASAmazonAdaptiveTimeout)} feeds the recorded requests to an adaptive timeout that has no
+ * statistics yet</li>
+ * </ul>
+ * The journal is a ring of fixed-size binary records in a memory-mapped file of the application files directory: writing
+ * a record is a few memory writes, without system call nor allocation of a new file. The network type of the request is
+ * resolved before taking the journal lock, or passed by the caller that already knows it.
+ * <p>
+ * This class is thread safe.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonBidJournal {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonBidJournal.class.getSimpleName();
+
+    // name of the journal file
+    private static final String FILE_NAME = "sas_amazon_bid_journal.bin";
+
+    // default number of records kept
+    public static final int DEFAULT_CAPACITY = 256;
+
+    // default age after which records are ignored
+    public static final long DEFAULT_MAX_RECORD_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    // journal file header: magic, version, capacity, next record index, record count
+    private static final int MAGIC = 0x53414A31;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int HEADER_NEXT_INDEX_OFFSET = 12;
+    private static final int HEADER_COUNT_OFFSET = 16;
+
+    // record layout: timestamp, latency, width, height, flags, network type, slot ID length, pricepoint length, slot ID, pricepoint
+    private static final int MAX_SLOT_ID_LENGTH = 40;
+    private static final int MAX_PRICEPOINT_LENGTH = 20;
+    private static final int RECORD_SIZE = 8 + 4 + 2 + 2 + 1 + 1 + 1 + 1 + MAX_SLOT_ID_LENGTH + MAX_PRICEPOINT_LENGTH;
+
+    // flag set on records of requests answered with a bid
+    private static final int FLAG_FILLED = 1;
+
+    // charset of the slot IDs and pricepoints
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    // instance shared by the application, opened lazily
+    private static SASAmazonBidJournal sharedInstance = null;
+
+    // application context, to get the current network type
+    private final Context context;
+
+    // number of records kept
+    private final int capacity;
+
+    // the memory-mapped journal file, null if it could not be opened
+    @Nullable
+    private final MappedByteBuffer buffer;
+
+    // index of the next record to write
+    private int nextIndex;
+
+    // number of records written, up to the capacity
+    private int count;
+
+    // scratch buffers used to encode and decode strings
+    private final byte[] slotIdBytes = new byte[MAX_SLOT_ID_LENGTH];
+    private final byte[] pricepointBytes = new byte[MAX_PRICEPOINT_LENGTH];
+
+    /**
+     * Creates a {@link SASAmazonBidJournal} backed by the given file. Records of an existing file are kept if it has the
+     * same capacity, the file is reset otherwise.
+     *
+     * @param context  the application context
+     * @param file     the journal file
+     * @param capacity the number of records kept
+     */
+    public SASAmazonBidJournal(@NonNull Context context, @NonNull File file, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The journal capacity must be strictly positive.");
+        }
+        this.context = context.getApplicationContext();
+        this.capacity = capacity;
+
+        MappedByteBuffer buffer = null;
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                // the mapping stays valid once the file is closed
+                buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Amazon bid journal cannot be opened: " + e.getMessage());
+        }
+        this.buffer = buffer;
+
+        if (buffer != null) {
+            if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION && buffer.getInt(8) == capacity) {
+                nextIndex = Math.max(0, Math.min(capacity - 1, buffer.getInt(HEADER_NEXT_INDEX_OFFSET)));
+                count = Math.max(0, Math.min(capacity, buffer.getInt(HEADER_COUNT_OFFSET)));
+            } else {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, capacity);
+                writeHeaderIndexes();
+            }
+        }
+    }
+
+    /**
+     * Returns the journal shared by the application, stored in its files directory with {@link #DEFAULT_CAPACITY} records
+     */
+    @NonNull
+    public static synchronized SASAmazonBidJournal getSharedInstance(@NonNull Context context) {
+        if (sharedInstance == null) {
+            sharedInstance = new SASAmazonBidJournal(context, new File(context.getFilesDir(), FILE_NAME), DEFAULT_CAPACITY);
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * Records an Amazon request answered with a bid, made on the current network
+     *
+     * @param adResponse the Amazon response
+     * @param latencyMs  the time elapsed between the request and the response, in milliseconds
+     */
+    public void recordBid(@NonNull DTBAdResponse adResponse, long latencyMs) {
+        recordBid(adResponse, SASAmazonNetworkType.getCurrent(context), latencyMs);
+    }
+
+    /**
+     * Records an Amazon request answered with a bid
+     *
+     * @param adResponse  the Amazon response
+     * @param networkType the network type the request was made on
+     * @param latencyMs   the time elapsed between the request and the response, in milliseconds
+     */
+    public void recordBid(@NonNull DTBAdResponse adResponse, @NonNull SASAmazonNetworkType networkType, long latencyMs) {
+        List<DTBAdSize> adSizes = adResponse.getDTBAds();
+        if (adSizes == null || adSizes.isEmpty()) {
+            return;
+        }
+        // interstitial sizes are recorded as 0x0
+        DTBAdSize adSize = adSizes.get(0);
+        boolean interstitial = adSize.isInterstitialAd();
+        record(adSize.getSlotUUID(), interstitial ? 0 : adSize.getWidth(), interstitial ? 0 : adSize.getHeight(),
+                SDKUtilities.getPricePoint(adResponse), networkType, latencyMs, true);
+    }
+
+    /**
+     * Records an Amazon request answered without bid, made on the current network
+     *
+     * @param adSizes   the requested ad sizes
+     * @param latencyMs the time elapsed between the request and the response, in milliseconds
+     */
+    public void recordNoBid(@NonNull DTBAdSize[] adSizes, long latencyMs) {
+        recordNoBid(adSizes, SASAmazonNetworkType.getCurrent(context), latencyMs);
+    }
+
+    /**
+     * Records an Amazon request answered without bid
+     *
+     * @param adSizes     the requested ad sizes
+     * @param networkType the network type the request was made on
+     * @param latencyMs   the time elapsed between the request and the response, in milliseconds
+     */
+    public void recordNoBid(@NonNull DTBAdSize[] adSizes, @NonNull SASAmazonNetworkType networkType, long latencyMs) {
+        if (adSizes.length > 0) {
+            record(adSizes[0].getSlotUUID(), 0, 0, null, networkType, latencyMs, false);
+        }
+    }
+
+    /**
+     * Requests bids for the slots filled by Amazon recently, with the sizes Amazon filled them with.
+     * Call it as early as possible at application launch, with the cache used by the first ad screens.
+     */
+    public void prefetchRecentSlots(@NonNull SASAmazonBidCache bidCache) {
+        for (DTBAdSize[] adSizes : getRecentlyFilledAdSizes().values()) {
+            bidCache.prefetch(adSizes);
+        }
+    }
+
+    /**
+     * Feeds the recorded requests of each slot and network type to the adaptive timeout, if it has no statistics
+     * for them yet (first launch after an update, cleared preferences...)
+     */
+    public void warmUp(@NonNull SASAmazonAdaptiveTimeout adaptiveTimeout) {
+        SASAmazonNetworkType[] networkTypes = SASAmazonNetworkType.values();
+        Map<String, Boolean> warmStates = new LinkedHashMap<>();
+        for (Record record : readRecords()) {
+            SASAmazonNetworkType networkType = networkTypes[record.networkType];
+            String key = record.slotId + networkType;
+            Boolean warm = warmStates.get(key);
+            if (warm == null) {
+                warm = adaptiveTimeout.hasStats(record.slotId, networkType);
+                warmStates.put(key, warm);
+            }
+            if (warm) {
+                continue;
+            }
+
+            if (record.filled) {
+                adaptiveTimeout.recordBid(record.slotId, networkType, record.latencyMs);
+            } else {
+                adaptiveTimeout.recordNoBid(record.slotId, networkType);
+            }
+        }
+    }
+
+    /**
+     * Returns, for each slot filled recently, the sizes Amazon filled it with, the most filled first
+     */
+    @NonNull
+    public Map<String, DTBAdSize[]> getRecentlyFilledAdSizes() {
+        // fill counts by size key ('width' << 32 | 'height'), by slot ID
+        Map<String, Map<Long, Integer>> fillCounts = new LinkedHashMap<>();
+        for (Record record : readRecords()) {
+            if (!record.filled) {
+                continue;
+            }
+            Map<Long, Integer> slotFillCounts = fillCounts.get(record.slotId);
+            if (slotFillCounts == null) {
+                slotFillCounts = new LinkedHashMap<>();
+                fillCounts.put(record.slotId, slotFillCounts);
+            }
+            long sizeKey = ((long) record.width << 32) | record.height;
+            Integer fillCount = slotFillCounts.get(sizeKey);
+            slotFillCounts.put(sizeKey, fillCount != null ? fillCount + 1 : 1);
+        }
+
+        Map<String, DTBAdSize[]> adSizes = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Long, Integer>> slotEntry : fillCounts.entrySet()) {
+            List<Map.Entry<Long, Integer>> sizeEntries = new ArrayList<>(slotEntry.getValue().entrySet());
+            // few sizes per slot: insertion sort by decreasing fill count
+            for (int i = 1; i < sizeEntries.size(); i++) {
+                for (int j = i; j > 0 && sizeEntries.get(j).getValue() > sizeEntries.get(j - 1).getValue(); j--) {
+                    sizeEntries.set(j, sizeEntries.set(j - 1, sizeEntries.get(j)));
+                }
+            }
+
+            String slotId = slotEntry.getKey();
+            DTBAdSize[] slotAdSizes = new DTBAdSize[sizeEntries.size()];
+            for (int i = 0; i < slotAdSizes.length; i++) {
+                long sizeKey = sizeEntries.get(i).getKey();
+                int width = (int) (sizeKey >>> 32);
+                int height = (int) sizeKey;
+                slotAdSizes[i] = width > 0 ? new DTBAdSize(width, height, slotId) : new DTBAdSize.DTBInterstitialAdSize(slotId);
+            }
+            adSizes.put(slotId, slotAdSizes);
+        }
+        return adSizes;
+    }
+
+    /**
+     * Removes all records
+     */
+    public synchronized void clear() {
+        nextIndex = 0;
+        count = 0;
+        if (buffer != null) {
+            writeHeaderIndexes();
+        }
+    }
+
+    /**
+     * Writes a record, overwriting the oldest one if the journal is full
+     */
+    private synchronized void record(@Nullable String slotId, int width, int height, @Nullable String pricepoint,
+                                     @NonNull SASAmazonNetworkType networkType, long latencyMs, boolean filled) {
+        if (buffer == null || slotId == null) {
+            return;
+        }
+
+        int offset = HEADER_SIZE + nextIndex * RECORD_SIZE;
+        buffer.putLong(offset, System.currentTimeMillis());
+        buffer.putInt(offset + 8, (int) Math.min(Integer.MAX_VALUE, Math.max(0, latencyMs)));
+        buffer.putShort(offset + 12, (short) width);
+        buffer.putShort(offset + 14, (short) height);
+        buffer.put(offset + 16, (byte) (filled ? FLAG_FILLED : 0));
+        buffer.put(offset + 17, (byte) networkType.ordinal());
+        int slotIdLength = encode(slotId, slotIdBytes);
+        int pricepointLength = pricepoint != null ? encode(pricepoint, pricepointBytes) : 0;
+        buffer.put(offset + 18, (byte) slotIdLength);
+        buffer.put(offset + 19, (byte) pricepointLength);
+        for (int i = 0; i < slotIdLength; i++) {
+            buffer.put(offset + 20 + i, slotIdBytes[i]);
+        }
+        for (int i = 0; i < pricepointLength; i++) {
+            buffer.put(offset + 20 + MAX_SLOT_ID_LENGTH + i, pricepointBytes[i]);
+        }
+
+        nextIndex = (nextIndex + 1) % capacity;
+        count = Math.min(capacity, count + 1);
+        writeHeaderIndexes();
+    }
+
+    /**
+     * Reads the records that are not too old, oldest first
+     */
+    @NonNull
+    private synchronized List<Record> readRecords() {
+        List<Record> records = new ArrayList<>(count);
+        if (buffer == null) {
+            return records;
+        }
+
+        long minTimestamp = System.currentTimeMillis() - DEFAULT_MAX_RECORD_AGE_MS;
+        int networkTypeCount = SASAmazonNetworkType.values().length;
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_SIZE + ((nextIndex - count + i + capacity) % capacity) * RECORD_SIZE;
+            long timestamp = buffer.getLong(offset);
+            int networkType = buffer.get(offset + 17);
+            int slotIdLength = buffer.get(offset + 18);
+            int pricepointLength = buffer.get(offset + 19);
+            if (timestamp < minTimestamp || networkType < 0 || networkType >= networkTypeCount
+                    || slotIdLength <= 0 || slotIdLength > MAX_SLOT_ID_LENGTH || pricepointLength < 0 || pricepointLength > MAX_PRICEPOINT_LENGTH) {
+                continue;
+            }
+
+            Record record = new Record();
+            record.latencyMs = buffer.getInt(offset + 8);
+            record.width = buffer.getShort(offset + 12);
+            record.height = buffer.getShort(offset + 14);
+            record.filled = (buffer.get(offset + 16) & FLAG_FILLED) != 0;
+            record.networkType = networkType;
+            for (int j = 0; j < slotIdLength; j++) {
+                slotIdBytes[j] = buffer.get(offset + 20 + j);
+            }
+            record.slotId = new String(slotIdBytes, 0, slotIdLength, ASCII);
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Persists the next record index and the record count in the file header
+     */
+    private void writeHeaderIndexes() {
+        buffer.putInt(HEADER_NEXT_INDEX_OFFSET, nextIndex);
+        buffer.putInt(HEADER_COUNT_OFFSET, count);
+    }
+
+    /**
+     * Encodes an ASCII string in the given buffer, truncating it if needed
+     *
+     * @return the number of bytes written
+     */
+    private static int encode(@NonNull String value, @NonNull byte[] bytes) {
+        int length = Math.min(value.length(), bytes.length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            bytes[i] = (byte) (c < 128 ? c : '?');
+        }
+        return length;
+    }
+
+    /**
+     * A decoded journal record
+     */
+    private static class Record {
+        String slotId;
+        int width;
+        int height;
+        int latencyMs;
+        boolean filled;
+        int networkType;
+    }
+}
@@ -0,0 +1,100 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * This class is the entry point of the Amazon bid lifecycle timing instrumentation.
+ * Each {@link Stage} of the lifecycle of an Amazon bid is reported to the registered {@link Listener} with monotonic
+ * start and end timestamps, from the Amazon request to the impression of the Amazon creative.
+ * <p>
+ * The Amazon request stages are reported by {@link SASAmazonBidCache} and {@link SASAmazonBidOrchestrator}. If you call
+ * Amazon by yourself, you can report them with {@link #now()} and {@link #report(String, Stage, long, long)}.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public final class SASAmazonBidMetrics {
+
+    /**
+     * Stages of the lifecycle of an Amazon bid
+     */
+    public enum Stage {
+        // from the Amazon request start to DTBAdCallback.onSuccess()
+        AMAZON_REQUEST_SUCCEEDED,
+        // from the Amazon request start to DTBAdCallback.onFailure()
+        AMAZON_REQUEST_FAILED,
+        // construction of the bidder adapter from the Amazon response
+        ADAPTER_CREATION,
+        // from the call of loadBidderBanner() or loadBidderInterstitial() by the Smart SDK to the rendering task running on the main thread
+        RENDERING_DISPATCH,
+        // from the fetch of the Amazon creative to its onAdLoaded() event
+        CREATIVE_LOADING,
+        // from the onAdLoaded() event of the Amazon creative to its onImpressionFired() event
+        IMPRESSION
+    }
+
+    /**
+     * Listener notified of each timed stage of the lifecycle of Amazon bids.
+     * It is called on the thread where the stage ends, and must return quickly.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a stage of the lifecycle of an Amazon bid ends
+         *
+         * @param slotId     the Amazon slot ID of the bid
+         * @param stage      the stage
+         * @param startNanos the start of the stage, in nanoseconds, from SystemClock.elapsedRealtimeNanos()
+         * @param endNanos   the end of the stage, in nanoseconds, from SystemClock.elapsedRealtimeNanos()
+         */
+        void onStageTimed(@NonNull String slotId, @NonNull Stage stage, long startNanos, long endNanos);
+    }
+
+    // the registered listener, if any
+    @Nullable
+    private static volatile Listener listener = null;
+
+    private SASAmazonBidMetrics() {
+    }
+
+    /**
+     * Registers the listener notified of the timed stages of all Amazon bids
+     *
+     * @param listener the listener, or null to disable the instrumentation
+     */
+    public static void setListener(@Nullable Listener listener) {
+        SASAmazonBidMetrics.listener = listener;
+    }
+
+    /**
+     * Returns the current monotonic timestamp, in nanoseconds, to be used as stage start or end
+     */
+    public static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Reports a timed stage to the registered listener, if any
+     *
+     * @param slotId     the Amazon slot ID of the bid, nothing is reported if null
+     * @param stage      the stage
+     * @param startNanos the start of the stage, from {@link #now()}
+     * @param endNanos   the end of the stage, from {@link #now()}
+     */
+    public static void report(@Nullable String slotId, @NonNull Stage stage, long startNanos, long endNanos) {
+        Listener listener = SASAmazonBidMetrics.listener;
+        if (listener != null && slotId != null) {
+            listener.onStageTimed(slotId, stage, startNanos, endNanos);
+        }
+    }
+
+    /**
+     * Reports a stage ending now to the registered listener, if any
+     */
+    static void reportEnd(@Nullable String slotId, @NonNull Stage stage, long startNanos) {
+        if (listener != null) {
+            report(slotId, stage, startNanos, now());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class is a {@link SASAmazonBidMetrics.Listener} aggregating the duration of each stage of the lifecycle of
+ * Amazon bids in per-slot {@link SASAmazonLatencyHistogram}s.
+ * <p>
+ * Register it with {@link SASAmazonBidMetrics#setListener(SASAmazonBidMetrics.Listener)}, then read the histograms
+ * periodically to forward them to your analytics backend.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonBidMetricsHistograms implements SASAmazonBidMetrics.Listener {
+
+    // number of nanoseconds in a millisecond
+    private static final long NANOS_PER_MS = 1000000;
+
+    // histograms by slot ID, each slot having one histogram per stage (indexed by stage ordinal)
+    private final ConcurrentMap<String, SASAmazonLatencyHistogram[]> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void onStageTimed(@NonNull String slotId, @NonNull SASAmazonBidMetrics.Stage stage, long startNanos, long endNanos) {
+        SASAmazonLatencyHistogram[] slotHistograms = histograms.get(slotId);
+        if (slotHistograms == null) {
+            slotHistograms = createSlotHistograms();
+            SASAmazonLatencyHistogram[] existingHistograms = histograms.putIfAbsent(slotId, slotHistograms);
+            if (existingHistograms != null) {
+                slotHistograms = existingHistograms;
+            }
+        }
+        slotHistograms[stage.ordinal()].record((endNanos - startNanos) / NANOS_PER_MS);
+    }
+
+    /**
+     * Returns the slot IDs for which at least one stage was timed
+     */
+    @NonNull
+    public Set<String> getSlotIds() {
+        return Collections.unmodifiableSet(histograms.keySet());
+    }
+
+    /**
+     * Returns the histogram of the durations of the given stage for the given slot ID, in milliseconds
+     *
+     * @return the histogram, or null if no stage was timed yet for this slot ID
+     */
+    @Nullable
+    public SASAmazonLatencyHistogram getHistogram(@NonNull String slotId, @NonNull SASAmazonBidMetrics.Stage stage) {
+        SASAmazonLatencyHistogram[] slotHistograms = histograms.get(slotId);
+        return slotHistograms != null ? slotHistograms[stage.ordinal()] : null;
+    }
+
+    /**
+     * Removes all histograms
+     */
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * Creates one empty histogram per stage
+     */
+    private static SASAmazonLatencyHistogram[] createSlotHistograms() {
+        SASAmazonBidMetrics.Stage[] stages = SASAmazonBidMetrics.Stage.values();
+        SASAmazonLatencyHistogram[] slotHistograms = new SASAmazonLatencyHistogram[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            slotHistograms[i] = new SASAmazonLatencyHistogram();
+        }
+        return slotHistograms;
+    }
+}
@@ -0,0 +1,388 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.device.ads.AdError;
+import com.amazon.device.ads.DTBAdCallback;
+import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
+import com.smartadserver.android.coresdk.util.SCSUtil;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class runs the Amazon header bidding request under a hard deadline, so that a slow Amazon response never
+ * blocks the Smart ad call for more than a configurable amount of time.
+ * The request methods return immediately: the Smart ad placement can be prepared while Amazon is being called, and the
+ * {@link Listener} is notified on the main thread with either a bidder adapter or null when the deadline is reached,
+ * in which case the Smart call should go out without bidder adapter.
+ * The deadline can be learned per slot and network type with {@link #setAdaptiveTimeout(SASAmazonAdaptiveTimeout)}, and
+ * the Amazon responses kept for the next launches with {@link #setBidJournal(SASAmazonBidJournal)}.
+ * Pending auctions must be cancelled with {@link #cancelAll()} when the screen requesting them is destroyed.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonBidOrchestrator {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonBidOrchestrator.class.getSimpleName();
+
+    // default header bidding deadline
+    public static final long DEFAULT_TIMEOUT_MS = 1000;
+
+    /**
+     * What to do with an Amazon response received after the deadline
+     */
+    public enum LateBidPolicy {
+        // the late response is dropped
+        DISCARD,
+        // the late response is stored in the bid cache, to be used by the next auction on the same slot
+        CACHE
+    }
+
+    /**
+     * Listener notified on the main thread when the Amazon auction is over
+     */
+    public interface Listener<T extends SASAmazonBaseBidderAdapter> {
+
+        /**
+         * Called exactly once per auction
+         *
+         * @param bidderAdapter the adapter wrapping the Amazon bid, or null if Amazon did not return a usable bid before the deadline
+         */
+        void onAuctionCompleted(@Nullable T bidderAdapter);
+    }
+
+    // header bidding deadline, in milliseconds
+    private final long timeoutMs;
+
+    // policy applied to responses received after the deadline
+    private final LateBidPolicy lateBidPolicy;
+
+    // optional bid cache, looked up before calling Amazon and used to store late responses
+    @Nullable
+    private final SASAmazonBidCache bidCache;
+
+    // optional adaptive timeout, replacing the fixed deadline once it has observed enough requests
+    @Nullable
+    private volatile SASAmazonAdaptiveTimeout adaptiveTimeout = null;
+
+    // optional journal recording the outcome of each Amazon request
+    @Nullable
+    private volatile SASAmazonBidJournal bidJournal = null;
+
+    // auctions whose listener has not been notified yet
+    private final Set<Auction<?>> pendingAuctions = Collections.newSetFromMap(new ConcurrentHashMap<Auction<?>, Boolean>());
+
+    /**
+     * Creates a {@link SASAmazonBidOrchestrator} with a {@link #DEFAULT_TIMEOUT_MS} deadline, discarding late bids
+     */
+    public SASAmazonBidOrchestrator() {
+        this(DEFAULT_TIMEOUT_MS, LateBidPolicy.DISCARD, null);
+    }
+
+    /**
+     * Creates a {@link SASAmazonBidOrchestrator}
+     *
+     * @param timeoutMs     the header bidding deadline, in milliseconds
+     * @param lateBidPolicy what to do with Amazon responses received after the deadline
+     * @param bidCache      a bid cache to look up before calling Amazon, and to store late bids in if the policy is {@link LateBidPolicy#CACHE}
+     */
+    public SASAmazonBidOrchestrator(long timeoutMs, @NonNull LateBidPolicy lateBidPolicy, @Nullable SASAmazonBidCache bidCache) {
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("The header bidding timeout must be strictly positive.");
+        }
+        if (lateBidPolicy == LateBidPolicy.CACHE && bidCache == null) {
+            throw new IllegalArgumentException("A bid cache is needed to cache late bids.");
+        }
+        this.timeoutMs = timeoutMs;
+        this.lateBidPolicy = lateBidPolicy;
+        this.bidCache = bidCache;
+    }
+
+    /**
+     * Sets the adaptive timeout deciding the deadline of each auction from the latencies observed for its slot on the
+     * current network type, and recording the outcome of each Amazon request.
+     *
+     * @param adaptiveTimeout the adaptive timeout, or null to use the fixed deadline
+     */
+    public void setAdaptiveTimeout(@Nullable SASAmazonAdaptiveTimeout adaptiveTimeout) {
+        this.adaptiveTimeout = adaptiveTimeout;
+    }
+
+    /**
+     * Sets the journal recording the outcome of each Amazon request, to warm up the next launches of the application.
+     *
+     * @param bidJournal the bid journal, or null to record nothing
+     */
+    public void setBidJournal(@Nullable SASAmazonBidJournal bidJournal) {
+        this.bidJournal = bidJournal;
+    }
+
+    /**
+     * Starts an Amazon auction for a banner. All sizes are expected to share the same slot ID.
+     */
+    public void requestBannerBid(@NonNull final Context context,
+                                 @NonNull Listener<SASAmazonBannerBidderAdapter> listener,
+                                 @NonNull DTBAdSize... adSizes) {
+        new Auction<SASAmazonBannerBidderAdapter>(context, listener, adSizes) {
+            @Nullable
+            @Override
+            SASAmazonBannerBidderAdapter popCachedBidderAdapter(@NonNull SASAmazonBidCache bidCache, @NonNull String slotId) {
+                return bidCache.popBannerBidderAdapter(slotId, context);
+            }
+
+            @NonNull
+            @Override
+            SASAmazonBidderAdapterResult<SASAmazonBannerBidderAdapter> createBidderAdapter(@NonNull DTBAdResponse adResponse) {
+                return SASAmazonBannerBidderAdapter.create(adResponse, context);
+            }
+        }.start();
+    }
+
+    /**
+     * Starts an Amazon auction for an interstitial. All sizes are expected to share the same slot ID.
+     */
+    public void requestInterstitialBid(@NonNull final Context context,
+                                       @NonNull Listener<SASAmazonInterstitialBidderAdapter> listener,
+                                       @NonNull DTBAdSize... adSizes) {
+        new Auction<SASAmazonInterstitialBidderAdapter>(context, listener, adSizes) {
+            @Nullable
+            @Override
+            SASAmazonInterstitialBidderAdapter popCachedBidderAdapter(@NonNull SASAmazonBidCache bidCache, @NonNull String slotId) {
+                return bidCache.popInterstitialBidderAdapter(slotId, context);
+            }
+
+            @NonNull
+            @Override
+            SASAmazonBidderAdapterResult<SASAmazonInterstitialBidderAdapter> createBidderAdapter(@NonNull DTBAdResponse adResponse) {
+                return SASAmazonInterstitialBidderAdapter.create(adResponse, context);
+            }
+        }.start();
+    }
+
+    /**
+     * Cancels all pending auctions: their listeners will not be notified, and bidder adapters created for them are
+     * destroyed. Amazon responses received afterwards are handled as late bids. Must be called on the main thread,
+     * typically from the onDestroy() method of the activity requesting the auctions.
+     */
+    public void cancelAll() {
+        for (Auction<?> auction : pendingAuctions) {
+            auction.cancel();
+        }
+        pendingAuctions.clear();
+    }
+
+    /**
+     * A single Amazon auction, completed either by the Amazon response or by the deadline, whichever comes first
+     */
+    private abstract class Auction<T extends SASAmazonBaseBidderAdapter> implements DTBAdCallback, Runnable {
+
+        // listener to notify of the auction outcome, null once the auction is cancelled
+        @Nullable
+        private volatile Listener<T> listener;
+
+        // requested Amazon ad sizes
+        private final DTBAdSize[] adSizes;
+
+        // the slot ID of the requested ad sizes
+        private final String slotId;
+
+        // set once the listener has been (or is about to be) notified
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        // start of the Amazon request, for lifecycle metrics
+        private long requestStartNanos;
+
+        // adaptive timeout recording the outcome of this auction, if any
+        @Nullable
+        private final SASAmazonAdaptiveTimeout adaptiveTimeout;
+
+        // network type the Amazon request is made on, null without adaptive timeout nor bid journal
+        @Nullable
+        private final SASAmazonNetworkType networkType;
+
+        // deadline of this auction, in milliseconds
+        private final long timeoutMs;
+
+        // journal recording the outcome of this auction, if any
+        @Nullable
+        private final SASAmazonBidJournal bidJournal;
+
+        Auction(@NonNull Context context, @NonNull Listener<T> listener, @NonNull DTBAdSize[] adSizes) {
+            if (adSizes.length == 0) {
+                throw new IllegalArgumentException("At least one ad size is needed to request an Amazon bid.");
+            }
+            this.listener = listener;
+            this.adSizes = adSizes;
+            this.slotId = adSizes[0].getSlotUUID();
+
+            this.adaptiveTimeout = SASAmazonBidOrchestrator.this.adaptiveTimeout;
+            this.bidJournal = SASAmazonBidOrchestrator.this.bidJournal;
+            if (adaptiveTimeout != null || bidJournal != null) {
+                this.networkType = SASAmazonNetworkType.getCurrent(context);
+            } else {
+                this.networkType = null;
+            }
+            if (adaptiveTimeout != null) {
+                this.timeoutMs = adaptiveTimeout.getTimeoutMs(slotId, networkType);
+            } else {
+                this.timeoutMs = SASAmazonBidOrchestrator.this.timeoutMs;
+            }
+        }
+
+        /**
+         * Returns a cached bidder adapter for the given slot ID, if any
+         */
+        @Nullable
+        abstract T popCachedBidderAdapter(@NonNull SASAmazonBidCache bidCache, @NonNull String slotId);
+
+        /**
+         * Wraps the Amazon response in a bidder adapter, without throwing
+         */
+        @NonNull
+        abstract SASAmazonBidderAdapterResult<T> createBidderAdapter(@NonNull DTBAdResponse adResponse);
+
+        void start() {
+            pendingAuctions.add(this);
+
+            // a warm cache makes the auction immediate
+            if (bidCache != null) {
+                T cachedBidderAdapter = popCachedBidderAdapter(bidCache, slotId);
+                if (cachedBidderAdapter != null) {
+                    Log.i(TAG, "Using cached Amazon bid for slot " + slotId);
+                    complete(cachedBidderAdapter);
+                    return;
+                }
+            }
+
+            SCSUtil.getMainLooperHandler().postDelayed(this, timeoutMs);
+
+            requestStartNanos = SASAmazonBidMetrics.now();
+            SASAmazonRequestCoalescer.getSharedInstance().loadAd(this, adSizes);
+        }
+
+        /**
+         * Deadline reached
+         */
+        @Override
+        public void run() {
+            if (completed.compareAndSet(false, true)) {
+                Log.i(TAG, "Amazon did not answer within " + timeoutMs + "ms for slot " + slotId);
+                pendingAuctions.remove(this);
+                Listener<T> listener = this.listener;
+                if (listener != null) {
+                    listener.onAuctionCompleted(null);
+                }
+            }
+        }
+
+        /**
+         * Stops waiting for the Amazon response and drops the listener, so that it is never notified
+         */
+        void cancel() {
+            listener = null;
+            if (completed.compareAndSet(false, true)) {
+                SCSUtil.getMainLooperHandler().removeCallbacks(this);
+            }
+        }
+
+        @Override
+        public void onSuccess(final DTBAdResponse dtbAdResponse) {
+            SASAmazonBidMetrics.reportEnd(slotId, SASAmazonBidMetrics.Stage.AMAZON_REQUEST_SUCCEEDED, requestStartNanos);
+
+            // late bids are recorded too, so that the adaptive timeout learns the whole latency distribution
+            long latencyMs = (SASAmazonBidMetrics.now() - requestStartNanos) / 1000000;
+            if (adaptiveTimeout != null && networkType != null) {
+                adaptiveTimeout.recordBid(slotId, networkType, latencyMs);
+            }
+            if (bidJournal != null && networkType != null) {
+                bidJournal.recordBid(dtbAdResponse, networkType, latencyMs);
+            }
+
+            if (!completed.compareAndSet(false, true)) {
+                handleLateBid(dtbAdResponse);
+                return;
+            }
+            SCSUtil.getMainLooperHandler().removeCallbacks(this);
+
+            // the response is parsed off the main thread, only the listener runs on it
+            SASAmazonBidderAdapterFactory.runInBackground(new Runnable() {
+                @Override
+                public void run() {
+                    SASAmazonBidderAdapterResult<T> result = createBidderAdapter(dtbAdResponse);
+                    if (result.getRejectionReason() != null) {
+                        Log.i(TAG, "Amazon bid for slot " + slotId + " cannot be used: " + result.getRejectionReason().getMessage());
+                    }
+                    notifyListener(result.getBidderAdapter());
+                }
+            });
+        }
+
+        @Override
+        public void onFailure(AdError adError) {
+            SASAmazonBidMetrics.reportEnd(slotId, SASAmazonBidMetrics.Stage.AMAZON_REQUEST_FAILED, requestStartNanos);
+
+            if (adaptiveTimeout != null && networkType != null) {
+                adaptiveTimeout.recordNoBid(slotId, networkType);
+            }
+            if (bidJournal != null && networkType != null) {
+                bidJournal.recordNoBid(adSizes, networkType, (SASAmazonBidMetrics.now() - requestStartNanos) / 1000000);
+            }
+
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            SCSUtil.getMainLooperHandler().removeCallbacks(this);
+
+            Log.i(TAG, "Amazon ad request failed for slot " + slotId + ": " + adError.getMessage());
+            notifyListener(null);
+        }
+
+        /**
+         * Marks the auction as completed and notifies the listener
+         */
+        private void complete(@Nullable T bidderAdapter) {
+            if (completed.compareAndSet(false, true)) {
+                notifyListener(bidderAdapter);
+            }
+        }
+
+        /**
+         * Notifies the listener on the main thread
+         */
+        private void notifyListener(@Nullable final T bidderAdapter) {
+            SCSUtil.getMainLooperHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    pendingAuctions.remove(Auction.this);
+                    Listener<T> listener = Auction.this.listener;
+                    if (listener != null) {
+                        listener.onAuctionCompleted(bidderAdapter);
+                    } else if (bidderAdapter != null) {
+                        // the auction was cancelled while the bidder adapter was being created
+                        bidderAdapter.destroy();
+                    }
+                }
+            });
+        }
+
+        /**
+         * Applies the late bid policy to a response received after the deadline
+         */
+        private void handleLateBid(@NonNull DTBAdResponse adResponse) {
+            if (lateBidPolicy == LateBidPolicy.CACHE && bidCache != null) {
+                Log.i(TAG, "Late Amazon bid cached for slot " + slotId);
+                bidCache.put(slotId, adResponse);
+            } else {
+                Log.i(TAG, "Late Amazon bid discarded for slot " + slotId);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+/**
+ * Reasons why an Amazon ad response cannot be wrapped in a bidder adapter.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public enum SASAmazonBidRejectionReason {
+
+    // the Amazon response does not contain any ad
+    NO_AD("No ad found in Amazon's response."),
+
+    // the Amazon response does not contain any pricepoint
+    NO_PRICEPOINT("No pricepoint found for Amazon's response."),
+
+    // the Amazon response does not contain the bid info needed for rendering
+    NO_BID_INFO("No bid info found for Amazon's response, we will not be able to render the ad."),
+
+    // the Amazon response does not contain any banner size
+    NO_AD_SIZE("No ad size found for Amazon's banner, we will not render the ad.");
+
+    // human readable description of the rejection
+    private final String message;
+
+    SASAmazonBidRejectionReason(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Returns a human readable description of the rejection
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,109 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class periodically drops the expired bids of registered {@link SASAmazonBidHolder}s on a background thread, so
+ * that stale Amazon bids do not stay in memory until the next time their holder is accessed.
+ * <p>
+ * Holders are referenced until unregistered: unregister them (or stop the sweeper) when the screen owning them is
+ * destroyed.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonBidSweeper {
+
+    // default delay between two sweeps
+    public static final long DEFAULT_SWEEP_INTERVAL_MS = 30 * 1000;
+
+    // registered bid holders
+    private final CopyOnWriteArrayList<SASAmazonBidHolder> bidHolders = new CopyOnWriteArrayList<>();
+
+    // delay between two sweeps, in milliseconds
+    private final long sweepIntervalMs;
+
+    // background thread running the sweeps, null when stopped
+    private HandlerThread sweepThread = null;
+
+    // handler of the background thread, null when stopped
+    private Handler sweepHandler = null;
+
+    // task sweeping all registered holders, then scheduling the next sweep
+    private final Runnable sweepTask = new Runnable() {
+        @Override
+        public void run() {
+            for (SASAmazonBidHolder bidHolder : bidHolders) {
+                bidHolder.removeExpiredBids();
+            }
+
+            synchronized (SASAmazonBidSweeper.this) {
+                if (sweepHandler != null) {
+                    sweepHandler.postDelayed(this, sweepIntervalMs);
+                }
+            }
+        }
+    };
+
+    /**
+     * Creates a {@link SASAmazonBidSweeper} sweeping every {@link #DEFAULT_SWEEP_INTERVAL_MS} milliseconds
+     */
+    public SASAmazonBidSweeper() {
+        this(DEFAULT_SWEEP_INTERVAL_MS);
+    }
+
+    /**
+     * Creates a {@link SASAmazonBidSweeper}
+     *
+     * @param sweepIntervalMs the delay between two sweeps, in milliseconds
+     */
+    public SASAmazonBidSweeper(long sweepIntervalMs) {
+        if (sweepIntervalMs <= 0) {
+            throw new IllegalArgumentException("The sweep interval must be strictly positive.");
+        }
+        this.sweepIntervalMs = sweepIntervalMs;
+    }
+
+    /**
+     * Adds a bid holder to sweep
+     */
+    public void register(@NonNull SASAmazonBidHolder bidHolder) {
+        bidHolders.addIfAbsent(bidHolder);
+    }
+
+    /**
+     * Removes a bid holder from the sweeps
+     */
+    public void unregister(@NonNull SASAmazonBidHolder bidHolder) {
+        bidHolders.remove(bidHolder);
+    }
+
+    /**
+     * Starts sweeping periodically. Nothing is done if already started.
+     */
+    public synchronized void start() {
+        if (sweepThread != null) {
+            return;
+        }
+        sweepThread = new HandlerThread(SASAmazonBidSweeper.class.getSimpleName());
+        sweepThread.start();
+        sweepHandler = new Handler(sweepThread.getLooper());
+        sweepHandler.postDelayed(sweepTask, sweepIntervalMs);
+    }
+
+    /**
+     * Stops sweeping and releases the background thread
+     */
+    public synchronized void stop() {
+        if (sweepThread == null) {
+            return;
+        }
+        sweepHandler.removeCallbacks(sweepTask);
+        sweepThread.quit();
+        sweepHandler = null;
+        sweepThread = null;
+    }
+}
@@ -0,0 +1,108 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.amazon.device.ads.AdError;
+import com.amazon.device.ads.DTBAdCallback;
+import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
+import com.smartadserver.android.library.thirdpartybidding.common.SASBidder;
+import com.smartadserver.android.library.thirdpartybidding.common.SASLocalBidAuction;
+
+/**
+ * This class is the Amazon {@link SASBidder}, requesting Amazon bids for a {@link SASLocalBidAuction} and wrapping them
+ * in bidder adapters.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public abstract class SASAmazonBidder<T extends SASAmazonBaseBidderAdapter> implements SASBidder<T> {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonBidder.class.getSimpleName();
+
+    // requested Amazon ad sizes
+    private final DTBAdSize[] adSizes;
+
+    // the slot ID of the requested ad sizes
+    private final String slotId;
+
+    private SASAmazonBidder(@NonNull DTBAdSize[] adSizes) {
+        if (adSizes.length == 0) {
+            throw new IllegalArgumentException("At least one ad size is needed to request an Amazon bid.");
+        }
+        this.adSizes = adSizes;
+        this.slotId = adSizes[0].getSlotUUID();
+    }
+
+    /**
+     * Creates an Amazon bidder for banners. All sizes are expected to share the same slot ID.
+     */
+    @NonNull
+    public static SASAmazonBidder<SASAmazonBannerBidderAdapter> forBanner(@NonNull final Context context, @NonNull DTBAdSize... adSizes) {
+        return new SASAmazonBidder<SASAmazonBannerBidderAdapter>(adSizes) {
+            @NonNull
+            @Override
+            SASAmazonBidderAdapterResult<SASAmazonBannerBidderAdapter> createBidderAdapter(@NonNull DTBAdResponse adResponse) {
+                return SASAmazonBannerBidderAdapter.create(adResponse, context);
+            }
+        };
+    }
+
+    /**
+     * Creates an Amazon bidder for interstitials
+     */
+    @NonNull
+    public static SASAmazonBidder<SASAmazonInterstitialBidderAdapter> forInterstitial(@NonNull final Context context, @NonNull DTBAdSize... adSizes) {
+        return new SASAmazonBidder<SASAmazonInterstitialBidderAdapter>(adSizes) {
+            @NonNull
+            @Override
+            SASAmazonBidderAdapterResult<SASAmazonInterstitialBidderAdapter> createBidderAdapter(@NonNull DTBAdResponse adResponse) {
+                return SASAmazonInterstitialBidderAdapter.create(adResponse, context);
+            }
+        };
+    }
+
+    /**
+     * Wraps the Amazon response in a bidder adapter, without throwing
+     */
+    @NonNull
+    abstract SASAmazonBidderAdapterResult<T> createBidderAdapter(@NonNull DTBAdResponse adResponse);
+
+    @NonNull
+    @Override
+    public String getName() {
+        return "Amazon";
+    }
+
+    @Override
+    public void requestBid(@NonNull final Callback<T> callback) {
+        final long requestStartNanos = SASAmazonBidMetrics.now();
+        SASAmazonRequestCoalescer.getSharedInstance().loadAd(new DTBAdCallback() {
+            @Override
+            public void onSuccess(final DTBAdResponse dtbAdResponse) {
+                SASAmazonBidMetrics.reportEnd(slotId, SASAmazonBidMetrics.Stage.AMAZON_REQUEST_SUCCEEDED, requestStartNanos);
+
+                // the response is parsed off the main thread, the auction accepting bids from any thread
+                SASAmazonBidderAdapterFactory.runInBackground(new Runnable() {
+                    @Override
+                    public void run() {
+                        SASAmazonBidderAdapterResult<T> result = createBidderAdapter(dtbAdResponse);
+                        if (result.getRejectionReason() != null) {
+                            Log.i(TAG, "Amazon bid for slot " + slotId + " cannot be used: " + result.getRejectionReason().getMessage());
+                        }
+                        callback.onBidReceived(result.getBidderAdapter());
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(AdError adError) {
+                SASAmazonBidMetrics.reportEnd(slotId, SASAmazonBidMetrics.Stage.AMAZON_REQUEST_FAILED, requestStartNanos);
+                Log.i(TAG, "Amazon ad request failed for slot " + slotId + ": " + adError.getMessage());
+                callback.onBidReceived(null);
+            }
+        }, adSizes);
+    }
+}
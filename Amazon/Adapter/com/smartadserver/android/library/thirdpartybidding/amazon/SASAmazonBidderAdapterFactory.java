@@ -0,0 +1,119 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import com.amazon.device.ads.DTBAdResponse;
+import com.smartadserver.android.coresdk.util.SCSUtil;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This class builds the Amazon bidder adapters off the main thread, so that bursts of Amazon callbacks, typically while
+ * a feed is scrolled, do not compete with the rendering of the application.
+ * <p>
+ * Building a bidder adapter is thread agnostic: it parses the Amazon response, validates the bid and creates no view.
+ * The views are only created on the main thread when the Smart SDK asks the adapter to render its ad. This class runs the
+ * parsing stage on a shared background thread, or inline if the caller is already off the main thread, then delivers
+ * the result on the main thread.
+ * <p>
+ * This class is thread safe.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public final class SASAmazonBidderAdapterFactory {
+
+    /**
+     * Callback notified on the main thread of the bidder adapter built from an Amazon response
+     */
+    public interface Callback<T extends SASAmazonBaseBidderAdapter> {
+
+        /**
+         * Called on the main thread once the Amazon response has been parsed
+         *
+         * @param result the result holding either the bidder adapter or the reason why the response cannot be used
+         */
+        void onBidderAdapterCreated(@NonNull SASAmazonBidderAdapterResult<T> result);
+    }
+
+    // shared background thread parsing the Amazon responses, in the order they are received
+    private static final ExecutorService PARSING_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, SASAmazonBidderAdapterFactory.class.getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private SASAmazonBidderAdapterFactory() {
+    }
+
+    /**
+     * Builds a {@link SASAmazonBannerBidderAdapter} from the Amazon ad response off the main thread
+     *
+     * @param adResponse the Amazon ad response, typically received in DTBAdCallback.onSuccess()
+     * @param context    the context the banner will be rendered in, only weakly referenced by the adapter
+     * @param callback   the callback notified of the result on the main thread
+     */
+    public static void createBannerBidderAdapter(@NonNull final DTBAdResponse adResponse, @NonNull final Context context,
+                                                 @NonNull final Callback<SASAmazonBannerBidderAdapter> callback) {
+        runInBackground(new Runnable() {
+            @Override
+            public void run() {
+                deliver(SASAmazonBannerBidderAdapter.create(adResponse, context), callback);
+            }
+        });
+    }
+
+    /**
+     * Builds a {@link SASAmazonInterstitialBidderAdapter} from the Amazon ad response off the main thread
+     *
+     * @param adResponse the Amazon ad response, typically received in DTBAdCallback.onSuccess()
+     * @param context    the context the interstitial will be shown from, only weakly referenced by the adapter
+     * @param callback   the callback notified of the result on the main thread
+     */
+    public static void createInterstitialBidderAdapter(@NonNull final DTBAdResponse adResponse, @NonNull final Context context,
+                                                       @NonNull final Callback<SASAmazonInterstitialBidderAdapter> callback) {
+        runInBackground(new Runnable() {
+            @Override
+            public void run() {
+                deliver(SASAmazonInterstitialBidderAdapter.create(adResponse, context), callback);
+            }
+        });
+    }
+
+    /**
+     * Runs the given task off the main thread: inline if the caller is already off the main thread, on the shared
+     * parsing thread otherwise
+     */
+    static void runInBackground(@NonNull Runnable task) {
+        if (SASAmazonMainThreadDispatcher.isMainThread()) {
+            PARSING_EXECUTOR.execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Notifies the callback of the result on the main thread
+     */
+    private static <T extends SASAmazonBaseBidderAdapter> void deliver(@NonNull final SASAmazonBidderAdapterResult<T> result,
+                                                                      @NonNull final Callback<T> callback) {
+        SCSUtil.getMainLooperHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onBidderAdapterCreated(result);
+            }
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * This class is the outcome of wrapping an Amazon ad response in a bidder adapter: either the adapter, or the reason
+ * why the response could not be used.
+ * Rejected results are shared instances, so that the no-bid path does not allocate anything, nor build any exception.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public final class SASAmazonBidderAdapterResult<T extends SASAmazonBaseBidderAdapter> {
+
+    // shared rejected results, by rejection reason ordinal
+    private static final SASAmazonBidderAdapterResult<?>[] REJECTED_RESULTS;
+
+    static {
+        SASAmazonBidRejectionReason[] reasons = SASAmazonBidRejectionReason.values();
+        REJECTED_RESULTS = new SASAmazonBidderAdapterResult<?>[reasons.length];
+        for (SASAmazonBidRejectionReason reason : reasons) {
+            REJECTED_RESULTS[reason.ordinal()] = new SASAmazonBidderAdapterResult<>(null, reason);
+        }
+    }
+
+    // the bidder adapter, null if the response was rejected
+    @Nullable
+    private final T bidderAdapter;
+
+    // the rejection reason, null if the response was accepted
+    @Nullable
+    private final SASAmazonBidRejectionReason rejectionReason;
+
+    private SASAmazonBidderAdapterResult(@Nullable T bidderAdapter, @Nullable SASAmazonBidRejectionReason rejectionReason) {
+        this.bidderAdapter = bidderAdapter;
+        this.rejectionReason = rejectionReason;
+    }
+
+    /**
+     * Returns a result holding the given bidder adapter
+     */
+    @NonNull
+    static <T extends SASAmazonBaseBidderAdapter> SASAmazonBidderAdapterResult<T> accepted(@NonNull T bidderAdapter) {
+        return new SASAmazonBidderAdapterResult<>(bidderAdapter, null);
+    }
+
+    /**
+     * Returns the shared result for the given rejection reason
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    static <T extends SASAmazonBaseBidderAdapter> SASAmazonBidderAdapterResult<T> rejected(@NonNull SASAmazonBidRejectionReason rejectionReason) {
+        return (SASAmazonBidderAdapterResult<T>) REJECTED_RESULTS[rejectionReason.ordinal()];
+    }
+
+    /**
+     * Returns whether the Amazon response could be wrapped in a bidder adapter
+     */
+    public boolean isAccepted() {
+        return bidderAdapter != null;
+    }
+
+    /**
+     * Returns the bidder adapter, or null if the Amazon response was rejected
+     */
+    @Nullable
+    public T getBidderAdapter() {
+        return bidderAdapter;
+    }
+
+    /**
+     * Returns the reason why the Amazon response was rejected, or null if it was accepted
+     */
+    @Nullable
+    public SASAmazonBidRejectionReason getRejectionReason() {
+        return rejectionReason;
+    }
+}
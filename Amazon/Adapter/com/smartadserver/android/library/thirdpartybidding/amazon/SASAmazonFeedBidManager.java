@@ -0,0 +1,535 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.device.ads.AdError;
+import com.amazon.device.ads.DTBAdCallback;
+import com.amazon.device.ads.DTBAdRequest;
+import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
+import com.smartadserver.android.coresdk.util.SCSUtil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * This class manages the Amazon bids of the many banner placements of a feed (RecyclerView, ListView...):
+ * <ul>
+ * <li>the bid requests of all the cells bound during the same layout pass are dispatched together on the next turn
+ * of the main loop, the highest priority placements first, and at most one Amazon request is sent per missing bid</li>
+ * <li>the number of concurrent Amazon requests is capped, so that the feed does not flood the network stack</li>
+ * <li>each bid returned for a slot goes to the highest priority placement still waiting for this slot, whichever placement
+ * triggered the request, and bids without placement are kept for the next cells</li>
+ * <li>the bidder adapter of a recycled cell that was never passed to the Smart SDK goes back to the manager, to be used
+ * by another cell, and all adapters share a {@link SASAmazonBannerViewPool}</li>
+ * </ul>
+ * The Amazon requests of the feed do not go through the {@link SASAmazonRequestCoalescer}: several requests for the same
+ * slot and ad sizes are sent on purpose, one per cell waiting for a bid, while the coalescer would hand a single bid
+ * to the first of them and a no fill to the others. The outcome of the requests can still be recorded in a
+ * {@link SASAmazonBidJournal}, see {@link #setBidJournal(SASAmazonBidJournal)}.
+ * Placements are identified by a caller provided key, typically the cell view holder, and prioritized by an integer,
+ * typically the adapter position of the cell: the lower the value, the sooner the placement is served.
+ * <p>
+ * This class is not thread safe and must only be used from the main thread, except for {@link #removeExpiredBids()}
+ * which can be called from a {@link SASAmazonBidSweeper}.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonFeedBidManager implements SASAmazonBidHolder {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonFeedBidManager.class.getSimpleName();
+
+    // default maximum number of concurrent Amazon requests
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+
+    // default delay after which a placement gives up waiting for a bid
+    public static final long DEFAULT_TIMEOUT_MS = SASAmazonBidOrchestrator.DEFAULT_TIMEOUT_MS;
+
+    /**
+     * Listener notified on the main thread when a bid is assigned to a placement
+     */
+    public interface Listener {
+
+        /**
+         * Called at most once per request, unless the placement is cancelled first
+         *
+         * @param bidderAdapter the adapter wrapping the Amazon bid assigned to the placement, or null if no bid could be
+         *                      assigned before the timeout, in which case the Smart call should go out without bidder adapter
+         */
+        void onBidAssigned(@Nullable SASAmazonBannerBidderAdapter bidderAdapter);
+    }
+
+    // context used to build the bidder adapters
+    private final Context context;
+
+    // maximum number of concurrent Amazon requests
+    private final int maxConcurrentRequests;
+
+    // delay after which a placement gives up waiting for a bid, in milliseconds
+    private final long timeoutMs;
+
+    // pool of banner views shared by all the bidder adapters of the feed
+    private final SASAmazonBannerViewPool bannerViewPool;
+
+    // placements waiting for a bid, by placement key
+    private final Map<Object, Placement> waitingPlacements = new HashMap<>();
+
+    // bidder adapters not assigned yet, oldest first, by request key
+    private final Map<String, ArrayDeque<SASAmazonBannerBidderAdapter>> availableBidderAdapters = new HashMap<>();
+
+    // number of Amazon requests in progress, by request key
+    private final Map<String, Integer> pendingRequestCounts = new HashMap<>();
+
+    // total number of Amazon requests in progress
+    private int pendingRequestCount = 0;
+
+    // request keys of the bidder adapters handed out, to take them back when recycled
+    private final Map<SASAmazonBannerBidderAdapter, String> handedOutRequestKeys = new WeakHashMap<>();
+
+    // sequence number of the next placement
+    private long nextSequenceNumber = 0;
+
+    // whether a dispatch is posted on the main thread
+    private boolean dispatchScheduled = false;
+
+    // set once the manager is destroyed
+    private boolean destroyed = false;
+
+    // optional journal recording the outcome of each Amazon request
+    @Nullable
+    private SASAmazonBidJournal bidJournal = null;
+
+    // preallocated task dispatching the waiting placements on the main thread
+    private final Runnable dispatchTask = new Runnable() {
+        @Override
+        public void run() {
+            dispatchScheduled = false;
+            dispatch();
+        }
+    };
+
+    // preallocated task dropping expired bids on the main thread
+    private final Runnable removeExpiredTask = new Runnable() {
+        @Override
+        public void run() {
+            removeExpiredBidderAdapters();
+        }
+    };
+
+    /**
+     * Creates a {@link SASAmazonFeedBidManager} sending at most {@link #DEFAULT_MAX_CONCURRENT_REQUESTS} concurrent
+     * Amazon requests, placements waiting at most {@link #DEFAULT_TIMEOUT_MS} milliseconds for a bid
+     *
+     * @param context the context used to build the banner views, usually the Activity hosting the feed
+     */
+    public SASAmazonFeedBidManager(@NonNull Context context) {
+        this(context, DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * Creates a {@link SASAmazonFeedBidManager}
+     *
+     * @param context               the context used to build the banner views, usually the Activity hosting the feed
+     * @param maxConcurrentRequests the maximum number of concurrent Amazon requests
+     * @param timeoutMs             the delay after which a placement gives up waiting for a bid, in milliseconds
+     */
+    public SASAmazonFeedBidManager(@NonNull Context context, int maxConcurrentRequests, long timeoutMs) {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("The maximum number of concurrent requests must be strictly positive.");
+        }
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("The timeout must be strictly positive.");
+        }
+        this.context = context;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.timeoutMs = timeoutMs;
+        this.bannerViewPool = new SASAmazonBannerViewPool(context);
+    }
+
+    /**
+     * Sets the journal recording the outcome of each Amazon request of the feed, to warm up the next launches of the application.
+     *
+     * @param bidJournal the bid journal, or null to record nothing
+     */
+    public void setBidJournal(@Nullable SASAmazonBidJournal bidJournal) {
+        this.bidJournal = bidJournal;
+    }
+
+    /**
+     * Requests a bid for a placement, typically when a cell is bound. A previous request for the same placement is
+     * cancelled. The listener is called right away if a bid is available for these ad sizes.
+     *
+     * @param placementKey the key of the placement, typically the cell view holder
+     * @param priority     the priority of the placement, typically its position in the feed: the lower the value, the sooner it is served
+     * @param listener     the listener notified of the assigned bid
+     * @param adSizes      the Amazon ad sizes of the placement, sharing the same slot ID
+     */
+    public void requestBid(@NonNull Object placementKey, int priority, @NonNull Listener listener, @NonNull DTBAdSize... adSizes) {
+        if (adSizes.length == 0) {
+            throw new IllegalArgumentException("At least one ad size is needed to request an Amazon bid.");
+        }
+        cancel(placementKey);
+        if (destroyed) {
+            listener.onBidAssigned(null);
+            return;
+        }
+
+        String requestKey = SASAmazonRequestCoalescer.getRequestKey(adSizes);
+        SASAmazonBannerBidderAdapter bidderAdapter = pollAvailableBidderAdapter(requestKey);
+        if (bidderAdapter != null) {
+            bidderAdapter.setBannerViewPool(bannerViewPool);
+            handedOutRequestKeys.put(bidderAdapter, requestKey);
+            listener.onBidAssigned(bidderAdapter);
+            return;
+        }
+
+        Placement placement = new Placement(placementKey, priority, listener, adSizes, requestKey);
+        waitingPlacements.put(placementKey, placement);
+        SCSUtil.getMainLooperHandler().postDelayed(placement, timeoutMs);
+
+        // the requests of all the cells bound in the same layout pass are dispatched together
+        if (!dispatchScheduled) {
+            dispatchScheduled = true;
+            SCSUtil.getMainLooperHandler().post(dispatchTask);
+        }
+    }
+
+    /**
+     * Stops waiting for a bid for a placement, typically when its cell is recycled. The Amazon request sent for it, if
+     * any, is not cancelled: its bid will go to another placement.
+     */
+    public void cancel(@NonNull Object placementKey) {
+        Placement placement = waitingPlacements.remove(placementKey);
+        if (placement != null) {
+            SCSUtil.getMainLooperHandler().removeCallbacks(placement);
+        }
+    }
+
+    /**
+     * Gives back the bidder adapter assigned to a recycled cell. Its bid is assigned to another placement only if the
+     * adapter was never passed to the Smart SDK: once passed, the Smart SDK may still render or release it, whatever
+     * the outcome of the ad call so far, so the adapter is destroyed. Expired bids and adapters not handed out by this
+     * manager are destroyed too.
+     *
+     * @param bidderAdapter the bidder adapter assigned to the recycled cell
+     * @param passedToSmart whether the adapter was passed to the Smart SDK, typically in SASBannerView.loadAd()
+     */
+    public void recycle(@NonNull SASAmazonBannerBidderAdapter bidderAdapter, boolean passedToSmart) {
+        bidderAdapter.detach();
+        String requestKey = handedOutRequestKeys.remove(bidderAdapter);
+        if (destroyed || requestKey == null || passedToSmart || bidderAdapter.isReleased()
+                || bidderAdapter.isRenderingStarted() || bidderAdapter.isExpired()) {
+            bidderAdapter.destroy();
+            return;
+        }
+        addAvailableBidderAdapter(requestKey, bidderAdapter);
+    }
+
+    /**
+     * Returns the number of bids available for the given ad sizes, not assigned to any placement yet
+     */
+    public int getAvailableBidCount(@NonNull DTBAdSize... adSizes) {
+        ArrayDeque<SASAmazonBannerBidderAdapter> bidderAdapters = availableBidderAdapters.get(SASAmazonRequestCoalescer.getRequestKey(adSizes));
+        return bidderAdapters != null ? bidderAdapters.size() : 0;
+    }
+
+    /**
+     * Drops the available bids that have expired. Can be called from any thread.
+     */
+    @Override
+    public void removeExpiredBids() {
+        SASAmazonMainThreadDispatcher.dispatch(removeExpiredTask);
+    }
+
+    /**
+     * Cancels all placements, drops the available bids and destroys the shared banner view pool.
+     * Must be called when the feed is destroyed. Bids received afterwards are dropped.
+     */
+    public void destroy() {
+        destroyed = true;
+        for (Placement placement : waitingPlacements.values()) {
+            SCSUtil.getMainLooperHandler().removeCallbacks(placement);
+        }
+        waitingPlacements.clear();
+        for (ArrayDeque<SASAmazonBannerBidderAdapter> bidderAdapters : availableBidderAdapters.values()) {
+            for (SASAmazonBannerBidderAdapter bidderAdapter : bidderAdapters) {
+                bidderAdapter.destroy();
+            }
+        }
+        availableBidderAdapters.clear();
+        handedOutRequestKeys.clear();
+        SCSUtil.getMainLooperHandler().removeCallbacks(dispatchTask);
+        bannerViewPool.destroy();
+    }
+
+    /**
+     * Assigns the available bids to the waiting placements, then sends as many Amazon requests as needed for the
+     * remaining ones, within the concurrency cap, the highest priority placements first
+     */
+    private void dispatch() {
+        if (destroyed || waitingPlacements.isEmpty()) {
+            return;
+        }
+
+        List<Placement> placements = getWaitingPlacementsByPriority();
+
+        // count the placements of each request key that are not covered by a pending request yet
+        Map<String, Integer> coveredCounts = new HashMap<>(pendingRequestCounts);
+        for (Placement placement : placements) {
+            SASAmazonBannerBidderAdapter bidderAdapter = pollAvailableBidderAdapter(placement.requestKey);
+            if (bidderAdapter != null) {
+                assign(placement, bidderAdapter);
+                continue;
+            }
+
+            Integer coveredCount = coveredCounts.get(placement.requestKey);
+            if (coveredCount != null && coveredCount > 0) {
+                coveredCounts.put(placement.requestKey, coveredCount - 1);
+                continue;
+            }
+
+            if (pendingRequestCount >= maxConcurrentRequests) {
+                // the next requests are sent as soon as a pending one completes
+                continue;
+            }
+            sendRequest(placement);
+        }
+    }
+
+    /**
+     * Sends an Amazon request for the ad sizes of the given placement
+     */
+    private void sendRequest(@NonNull Placement placement) {
+        final String requestKey = placement.requestKey;
+        final String slotId = placement.adSizes[0].getSlotUUID();
+
+        pendingRequestCount++;
+        Integer requestCount = pendingRequestCounts.get(requestKey);
+        pendingRequestCounts.put(requestKey, requestCount != null ? requestCount + 1 : 1);
+
+        final long requestStartNanos = SASAmazonBidMetrics.now();
+        final SASAmazonBidJournal bidJournal = this.bidJournal;
+        final DTBAdSize[] requestedAdSizes = placement.adSizes;
+
+        // not coalesced on purpose, see the class documentation: each waiting cell gets a request of its own
+        DTBAdRequest adLoader = new DTBAdRequest();
+        adLoader.setSizes(requestedAdSizes);
+        adLoader.loadAd(new DTBAdCallback() {
+            @Override
+            public void onSuccess(DTBAdResponse dtbAdResponse) {
+                SASAmazonBidMetrics.reportEnd(slotId, SASAmazonBidMetrics.Stage.AMAZON_REQUEST_SUCCEEDED, requestStartNanos);
+                if (bidJournal != null) {
+                    bidJournal.recordBid(dtbAdResponse, (SASAmazonBidMetrics.now() - requestStartNanos) / 1000000);
+                }
+
+                // the response is parsed off the main thread, only the assignment runs on it
+                SASAmazonBidderAdapterFactory.createBannerBidderAdapter(dtbAdResponse, context, new SASAmazonBidderAdapterFactory.Callback<SASAmazonBannerBidderAdapter>() {
+                    @Override
+                    public void onBidderAdapterCreated(@NonNull SASAmazonBidderAdapterResult<SASAmazonBannerBidderAdapter> result) {
+                        if (result.getRejectionReason() != null) {
+                            Log.i(TAG, "Amazon bid for slot " + slotId + " cannot be used: " + result.getRejectionReason().getMessage());
+                        }
+                        onRequestCompleted(requestKey, result.getBidderAdapter());
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(final AdError adError) {
+                SASAmazonBidMetrics.reportEnd(slotId, SASAmazonBidMetrics.Stage.AMAZON_REQUEST_FAILED, requestStartNanos);
+                if (bidJournal != null) {
+                    bidJournal.recordNoBid(requestedAdSizes, (SASAmazonBidMetrics.now() - requestStartNanos) / 1000000);
+                }
+                SCSUtil.getMainLooperHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        Log.i(TAG, "Amazon ad request failed for slot " + slotId + ": " + adError.getMessage());
+                        onRequestCompleted(requestKey, null);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Assigns the bid of a completed request to the highest priority placement waiting for its ad sizes, or keeps it
+     * for the next one, then dispatches the remaining placements. Without bid, the highest priority placement waiting
+     * for these ad sizes is notified without bid, instead of sending the same request again.
+     */
+    private void onRequestCompleted(@NonNull String requestKey, @Nullable SASAmazonBannerBidderAdapter bidderAdapter) {
+        pendingRequestCount--;
+        Integer requestCount = pendingRequestCounts.get(requestKey);
+        if (requestCount != null && requestCount > 1) {
+            pendingRequestCounts.put(requestKey, requestCount - 1);
+        } else {
+            pendingRequestCounts.remove(requestKey);
+        }
+
+        if (destroyed) {
+            if (bidderAdapter != null) {
+                bidderAdapter.destroy();
+            }
+            return;
+        }
+
+        Placement placement = getFirstWaitingPlacement(requestKey);
+        if (placement != null) {
+            assign(placement, bidderAdapter);
+        } else if (bidderAdapter != null) {
+            addAvailableBidderAdapter(requestKey, bidderAdapter);
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Notifies a waiting placement of its bid, if any, and stops waiting for it
+     */
+    private void assign(@NonNull Placement placement, @Nullable SASAmazonBannerBidderAdapter bidderAdapter) {
+        waitingPlacements.remove(placement.placementKey);
+        SCSUtil.getMainLooperHandler().removeCallbacks(placement);
+        if (bidderAdapter != null) {
+            bidderAdapter.setBannerViewPool(bannerViewPool);
+            handedOutRequestKeys.put(bidderAdapter, placement.requestKey);
+        }
+        placement.listener.onBidAssigned(bidderAdapter);
+    }
+
+    /**
+     * Returns the highest priority placement waiting for the given ad sizes, if any
+     */
+    @Nullable
+    private Placement getFirstWaitingPlacement(@NonNull String requestKey) {
+        Placement firstPlacement = null;
+        for (Placement placement : waitingPlacements.values()) {
+            if (placement.requestKey.equals(requestKey) && (firstPlacement == null || placement.isBefore(firstPlacement))) {
+                firstPlacement = placement;
+            }
+        }
+        return firstPlacement;
+    }
+
+    /**
+     * Returns the waiting placements, the highest priority first
+     */
+    @NonNull
+    private List<Placement> getWaitingPlacementsByPriority() {
+        List<Placement> placements = new ArrayList<>(waitingPlacements.values());
+        // a screen of feed has a few dozen placements at most: insertion sort
+        for (int i = 1; i < placements.size(); i++) {
+            for (int j = i; j > 0 && placements.get(j).isBefore(placements.get(j - 1)); j--) {
+                placements.set(j, placements.set(j - 1, placements.get(j)));
+            }
+        }
+        return placements;
+    }
+
+    /**
+     * Removes and returns the oldest non expired bidder adapter available for the given ad sizes, if any
+     */
+    @Nullable
+    private SASAmazonBannerBidderAdapter pollAvailableBidderAdapter(@NonNull String requestKey) {
+        ArrayDeque<SASAmazonBannerBidderAdapter> bidderAdapters = availableBidderAdapters.get(requestKey);
+        if (bidderAdapters == null) {
+            return null;
+        }
+
+        SASAmazonBannerBidderAdapter bidderAdapter;
+        while ((bidderAdapter = bidderAdapters.poll()) != null) {
+            if (!bidderAdapter.isExpired()) {
+                return bidderAdapter;
+            }
+            bidderAdapter.destroy();
+        }
+        return null;
+    }
+
+    /**
+     * Keeps a bidder adapter for the next placement requesting the same ad sizes
+     */
+    private void addAvailableBidderAdapter(@NonNull String requestKey, @NonNull SASAmazonBannerBidderAdapter bidderAdapter) {
+        ArrayDeque<SASAmazonBannerBidderAdapter> bidderAdapters = availableBidderAdapters.get(requestKey);
+        if (bidderAdapters == null) {
+            bidderAdapters = new ArrayDeque<>();
+            availableBidderAdapters.put(requestKey, bidderAdapters);
+        }
+        bidderAdapters.offer(bidderAdapter);
+    }
+
+    /**
+     * Drops the expired available bidder adapters. Must be called on the main thread.
+     */
+    private void removeExpiredBidderAdapters() {
+        for (ArrayDeque<SASAmazonBannerBidderAdapter> bidderAdapters : availableBidderAdapters.values()) {
+            Iterator<SASAmazonBannerBidderAdapter> iterator = bidderAdapters.iterator();
+            while (iterator.hasNext()) {
+                SASAmazonBannerBidderAdapter bidderAdapter = iterator.next();
+                if (bidderAdapter.isExpired()) {
+                    bidderAdapter.destroy();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * A placement waiting for a bid, notified without bid when it runs (timeout)
+     */
+    private class Placement implements Runnable {
+
+        // key of the placement
+        final Object placementKey;
+
+        // priority of the placement, the lower the sooner it is served
+        final int priority;
+
+        // listener notified of the assigned bid
+        final Listener listener;
+
+        // requested Amazon ad sizes
+        final DTBAdSize[] adSizes;
+
+        // key of the slot ID and ad sizes, shared by the placements that can use the same bids
+        final String requestKey;
+
+        // order of the request, to serve placements of the same priority first come first served
+        final long sequenceNumber;
+
+        Placement(@NonNull Object placementKey, int priority, @NonNull Listener listener, @NonNull DTBAdSize[] adSizes,
+                  @NonNull String requestKey) {
+            this.placementKey = placementKey;
+            this.priority = priority;
+            this.listener = listener;
+            this.adSizes = adSizes;
+            this.requestKey = requestKey;
+            this.sequenceNumber = nextSequenceNumber++;
+        }
+
+        /**
+         * Returns whether this placement must be served before the given one
+         */
+        boolean isBefore(@NonNull Placement placement) {
+            return priority < placement.priority || (priority == placement.priority && sequenceNumber < placement.sequenceNumber);
+        }
+
+        /**
+         * Timeout reached
+         */
+        @Override
+        public void run() {
+            if (waitingPlacements.get(placementKey) == this) {
+                Log.i(TAG, "No Amazon bid assigned within " + timeoutMs + "ms for slot " + adSizes[0].getSlotUUID());
+                assign(this, null);
+            }
+        }
+    }
+}
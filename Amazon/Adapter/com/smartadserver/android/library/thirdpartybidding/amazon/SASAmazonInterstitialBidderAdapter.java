@@ -4,6 +4,8 @@ import android.content.Context;
 import android.util.Log;
 import android.view.View;
 
+import androidx.annotation.NonNull;
+
 import com.amazon.device.ads.DTBAdInterstitial;
 import com.amazon.device.ads.DTBAdInterstitialListener;
 import com.amazon.device.ads.DTBAdResponse;
@@ -12,6 +14,9 @@ import com.smartadserver.android.library.thirdpartybidding.SASBidderAdapter;
 import com.smartadserver.android.library.thirdpartybidding.SASInterstitialBidderAdapter;
 import com.smartadserver.android.library.thirdpartybidding.SASInterstitialBidderAdapterListener;
 
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * This class is an implementation of the {@link SASBidderAdapter} interface for the Amazon Mobile Match Buy SDK
  * This class is an implementation of the {@link SASInterstitialBidderAdapter} interface for the Amazon Mobile Match Buy SDK
@@ -24,31 +29,166 @@ public class SASAmazonInterstitialBidderAdapter extends SASAmazonBaseBidderAdapt
     // tag for logging purposes
     private static final String TAG = SASAmazonInterstitialBidderAdapter.class.getSimpleName();
 
-    // Amazon interstitial
+    // context the Amazon interstitial is created with, weakly referenced so that a pending bid does not leak its Activity
+    private final WeakReference<Context> contextReference;
+
+    // Amazon interstitial, created on the main thread when its creative is first fetched
     DTBAdInterstitial amazonInterstitial;
 
-    // callback to notify Smart SDK of events generated by Amazon interstitial
-    SASInterstitialBidderAdapterListener interstitialBidderAdapterListener;
+    // callback to notify Smart SDK of events generated by Amazon interstitial, set from the Smart SDK thread and read once per Amazon event
+    final AtomicReference<SASInterstitialBidderAdapterListener> interstitialBidderAdapterListener = new AtomicReference<>();
+
+    /**
+     * Loading state of the Amazon interstitial creative
+     */
+    private enum CreativeState {
+        NOT_FETCHED, FETCHING, LOADED, FAILED
+    }
+
+    // loading state of the Amazon interstitial creative, only accessed from the main thread
+    private CreativeState creativeState = CreativeState.NOT_FETCHED;
+
+    // timestamps of the loading dispatch, creative fetch and load, for lifecycle metrics
+    private long dispatchStartNanos = 0;
+    private long creativeFetchNanos = 0;
+    private long creativeLoadedNanos = 0;
+
+    // preallocated task loading the Amazon interstitial on the main thread
+    private final Runnable loadTask = new Runnable() {
+        @Override
+        public void run() {
+            SASAmazonBidMetrics.reportEnd(bid.slotId, SASAmazonBidMetrics.Stage.RENDERING_DISPATCH, dispatchStartNanos);
+
+            SASInterstitialBidderAdapterListener listener = interstitialBidderAdapterListener.get();
+
+            // the adapter may have been released while the task was pending
+            if (isReleased()) {
+                if (listener != null) {
+                    postLoadFailure(listener, ADAPTER_RELEASED_MESSAGE);
+                }
+                return;
+            }
+
+            switch (creativeState) {
+                case NOT_FETCHED:
+                    // load creative from bid
+                    fetchCreative();
+                    break;
+                case FETCHING:
+                    // creative preloading in progress, the listener will be notified when done
+                    break;
+                case LOADED:
+                    // creative already preloaded, the interstitial can be shown instantly
+                    SCSUtil.getMainLooperHandler().post(notifyLoadedTask);
+                    break;
+                case FAILED:
+                    if (listener != null) {
+                        postLoadFailure(listener, "Amazon bidder interstitial ad could not be displayed");
+                    }
+                    break;
+            }
+        }
+    };
+
+    // preallocated task notifying the Smart SDK that the preloaded creative is loaded
+    private final Runnable notifyLoadedTask = new Runnable() {
+        @Override
+        public void run() {
+            SASInterstitialBidderAdapterListener listener = interstitialBidderAdapterListener.get();
+            if (listener != null) {
+                listener.onInterstitialLoaded();
+            }
+        }
+    };
+
+    // preallocated task preloading the Amazon interstitial creative on the main thread
+    private final Runnable preloadTask = new Runnable() {
+        @Override
+        public void run() {
+            if (creativeState == CreativeState.NOT_FETCHED && !isReleased()) {
+                fetchCreative();
+            }
+        }
+    };
+
+    // preallocated task showing the Amazon interstitial on the main thread
+    private final Runnable showTask = new Runnable() {
+        @Override
+        public void run() {
+            // the adapter may have been released, or its creative never loaded, the Smart SDK must not wait for the show
+            if (isReleased() || amazonInterstitial == null) {
+                SASInterstitialBidderAdapterListener listener = interstitialBidderAdapterListener.get();
+                if (listener != null) {
+                    listener.onInterstitialFailedToShow(isReleased() ? ADAPTER_RELEASED_MESSAGE : "Amazon bidder interstitial ad was not loaded");
+                }
+                return;
+            }
+            amazonInterstitial.show();
+        }
+    };
 
     /**
      * Creates a {@link SASAmazonInterstitialBidderAdapter} from Amazon ad response
      */
     public SASAmazonInterstitialBidderAdapter(DTBAdResponse adResponse, Context context) throws IllegalArgumentException {
         super(adResponse);
+        this.contextReference = new WeakReference<>(context);
+    }
+
+    /**
+     * Creates a {@link SASAmazonInterstitialBidderAdapter} from already validated Amazon bid parameters
+     */
+    private SASAmazonInterstitialBidderAdapter(SASAmazonBid bid, Context context) {
+        super(bid);
+        this.contextReference = new WeakReference<>(context);
+    }
+
+    /**
+     * Wraps the Amazon ad response in a {@link SASAmazonInterstitialBidderAdapter} without throwing, to keep the no-bid path cheap.
+     * It can be called from any thread, as no view is created before rendering: see {@link SASAmazonBidderAdapterFactory}.
+     *
+     * @return a result holding either the bidder adapter or the reason why the response cannot be used
+     */
+    @NonNull
+    public static SASAmazonBidderAdapterResult<SASAmazonInterstitialBidderAdapter> create(@NonNull DTBAdResponse adResponse, @NonNull Context context) {
+        long creationStartNanos = SASAmazonBidMetrics.now();
+
+        SASAmazonBid bid = parseResponse(adResponse);
+        if (bid.rejectionReason != null) {
+            return SASAmazonBidderAdapterResult.rejected(bid.rejectionReason);
+        }
+
+        SASAmazonInterstitialBidderAdapter bidderAdapter = new SASAmazonInterstitialBidderAdapter(bid, context);
+        SASAmazonBidMetrics.reportEnd(bid.slotId, SASAmazonBidMetrics.Stage.ADAPTER_CREATION, creationStartNanos);
+        return SASAmazonBidderAdapterResult.accepted(bidderAdapter);
+    }
+
+    /**
+     * Creates the Amazon interstitial instance, forwarding its events to the SASInterstitialBidderAdapterListener instance.
+     * Must be called on the main thread.
+     */
+    private void createInterstitial(Context context) {
 
         // Create Amazon banner listener than will forward events to the SASInterstitialBidderAdapterListener instance
         DTBAdInterstitialListener interstitialListener = new DTBAdInterstitialListener() {
             @Override
             public void onAdLoaded(View view) {
-                if (interstitialBidderAdapterListener != null) {
-                    interstitialBidderAdapterListener.onInterstitialLoaded();
+                creativeState = CreativeState.LOADED;
+                creativeLoadedNanos = SASAmazonBidMetrics.now();
+                SASAmazonBidMetrics.report(bid.slotId, SASAmazonBidMetrics.Stage.CREATIVE_LOADING, creativeFetchNanos, creativeLoadedNanos);
+
+                SASInterstitialBidderAdapterListener listener = interstitialBidderAdapterListener.get();
+                if (listener != null) {
+                    listener.onInterstitialLoaded();
                 }
             }
 
             @Override
             public void onAdFailed(View view) {
-                if (interstitialBidderAdapterListener != null) {
-                    interstitialBidderAdapterListener.adRequestFailed("Amazon bidder interstitial ad could not be displayed", false);
+                creativeState = CreativeState.FAILED;
+                SASInterstitialBidderAdapterListener listener = interstitialBidderAdapterListener.get();
+                if (listener != null) {
+                    listener.adRequestFailed("Amazon bidder interstitial ad could not be displayed", false);
                 }
             }
 
@@ -59,31 +199,36 @@ public class SASAmazonInterstitialBidderAdapter extends SASAmazonBaseBidderAdapt
 
             @Override
             public void onAdLeftApplication(View view) {
-                if (interstitialBidderAdapterListener != null) {
+                SASInterstitialBidderAdapterListener listener = interstitialBidderAdapterListener.get();
+                if (listener != null) {
                     // consider onAdLeftApplication as the "post click view opened" event
-                    interstitialBidderAdapterListener.onAdClicked();
-                    interstitialBidderAdapterListener.onAdLeftApplication();
+                    listener.onAdClicked();
+                    listener.onAdLeftApplication();
                 }
             }
 
             @Override
             public void onAdOpen(View view) {
-                if (interstitialBidderAdapterListener != null) {
+                SASInterstitialBidderAdapterListener listener = interstitialBidderAdapterListener.get();
+                if (listener != null) {
                     // onAdOpen corresponds to the interstital shown event in the smart SDK
-                    interstitialBidderAdapterListener.onInterstitialShown();
+                    listener.onInterstitialShown();
                 }
             }
 
             @Override
             public void onAdClosed(View view) {
-                if (interstitialBidderAdapterListener != null) {
-                    interstitialBidderAdapterListener.onAdClosed();
+                SASInterstitialBidderAdapterListener listener = interstitialBidderAdapterListener.get();
+                if (listener != null) {
+                    listener.onAdClosed();
                 }
             }
 
             @Override
             public void onImpressionFired(View view) {
                 Log.i(TAG, "Amazon bidder interstitial ad impression fired");
+                SASAmazonBidMetrics.reportEnd(bid.slotId, SASAmazonBidMetrics.Stage.IMPRESSION, creativeLoadedNanos);
+                recordImpression();
             }
         };
 
@@ -91,6 +236,50 @@ public class SASAmazonInterstitialBidderAdapter extends SASAmazonBaseBidderAdapt
         amazonInterstitial = new DTBAdInterstitial(context, interstitialListener);
     }
 
+    /**
+     * Fetches the Amazon interstitial creative. Must be called on the main thread.
+     */
+    private void fetchCreative() {
+        if (amazonInterstitial == null) {
+            Context context = contextReference.get();
+            if (context == null) {
+                creativeState = CreativeState.FAILED;
+                SASInterstitialBidderAdapterListener listener = interstitialBidderAdapterListener.get();
+                if (listener != null) {
+                    postLoadFailure(listener, ADAPTER_RELEASED_MESSAGE);
+                }
+                return;
+            }
+            createInterstitial(context);
+        }
+
+        creativeState = CreativeState.FETCHING;
+        creativeFetchNanos = SASAmazonBidMetrics.now();
+        amazonInterstitial.fetchAd(bidInfos);
+    }
+
+    /**
+     * Starts loading the Amazon interstitial creative before the Smart SDK asks for it, so that the interstitial can be
+     * shown instantly if the Amazon bid wins. This is what {@link SASAmazonInterstitialPool} does for pooled adapters.
+     */
+    public void preloadCreative() {
+        SASAmazonMainThreadDispatcher.dispatch(preloadTask);
+    }
+
+    /**
+     * Returns whether the Amazon interstitial creative has been loaded. Must be called on the main thread.
+     */
+    public boolean isCreativeLoaded() {
+        return creativeState == CreativeState.LOADED;
+    }
+
+    /**
+     * Returns whether the Amazon interstitial creative failed to load. Must be called on the main thread.
+     */
+    boolean isCreativeFailed() {
+        return creativeState == CreativeState.FAILED;
+    }
+
     /**
      * Implementation of the method of the {@link SASInterstitialBidderAdapter} methods in charge of
      * loading the Amazon interstitial ad fetched by this interstitial bidder adapter
@@ -98,16 +287,38 @@ public class SASAmazonInterstitialBidderAdapter extends SASAmazonBaseBidderAdapt
     @Override
     public void loadBidderInterstitial(SASInterstitialBidderAdapterListener interstitialBidderAdapterListener) {
 
-        this.interstitialBidderAdapterListener = interstitialBidderAdapterListener;
+        // a released adapter no longer has the resources to load its interstitial
+        if (isReleased()) {
+            postLoadFailure(interstitialBidderAdapterListener, ADAPTER_RELEASED_MESSAGE);
+            return;
+        }
+
+        this.interstitialBidderAdapterListener.set(interstitialBidderAdapterListener);
+
+        // do not waste a rendering attempt on a stale bid
+        if (isExpired()) {
+            Log.i(TAG, "Amazon interstitial bid expired " + getBidAgeMs() + "ms after reception");
+            postLoadFailure(interstitialBidderAdapterListener, BID_EXPIRED_MESSAGE);
+            return;
+        }
+
+        // load right away if already on the main thread
+        dispatchStartNanos = SASAmazonBidMetrics.now();
+        SASAmazonMainThreadDispatcher.dispatch(loadTask);
 
+    }
+
+    /**
+     * Notifies the Smart SDK that the interstitial cannot be loaded, always posted so that the Smart SDK is never
+     * called back from within loadBidderInterstitial()
+     */
+    private static void postLoadFailure(@NonNull final SASInterstitialBidderAdapterListener listener, @NonNull final String message) {
         SCSUtil.getMainLooperHandler().post(new Runnable() {
             @Override
             public void run() {
-                // load creative from bid
-                amazonInterstitial.fetchAd(bidInfos);
+                listener.adRequestFailed(message, false);
             }
         });
-
     }
 
     /**
@@ -117,11 +328,25 @@ public class SASAmazonInterstitialBidderAdapter extends SASAmazonBaseBidderAdapt
     @Override
     public void showBidderInterstitial() {
 
-        SCSUtil.getMainLooperHandler().post(new Runnable() {
-            @Override
-            public void run() {
-                amazonInterstitial.show();
-            }
-        });
+        // show right away if already on the main thread
+        SASAmazonMainThreadDispatcher.dispatch(showTask);
+    }
+
+    /**
+     * Stops forwarding the Amazon interstitial events to the Smart SDK. Call it when the Smart interstitial manager is
+     * destroyed, so that late Amazon events are not forwarded to a released listener.
+     */
+    @Override
+    public void detach() {
+        interstitialBidderAdapterListener.set(null);
+    }
+
+    @Override
+    void releaseResources(boolean destroyViews) {
+        SCSUtil.getMainLooperHandler().removeCallbacks(notifyLoadedTask);
+
+        // the Amazon interstitial has no view to destroy, dropping it releases the context it holds
+        amazonInterstitial = null;
+        contextReference.clear();
     }
 }
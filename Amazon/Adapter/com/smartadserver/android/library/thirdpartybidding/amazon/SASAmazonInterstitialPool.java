@@ -0,0 +1,281 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.amazon.device.ads.AdError;
+import com.amazon.device.ads.DTBAdCallback;
+import com.amazon.device.ads.DTBAdRequest;
+import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * This class keeps a number of Amazon interstitial bidder adapters ready ahead of natural break points: their Amazon
+ * bid is already received and their creative already loaded, so that the interstitial can be shown instantly if the
+ * Amazon bid wins the Smart competition.
+ * <p>
+ * Call {@link #warmUp()} ahead of a break point (at level start for instance), then {@link #pop()} at the break point
+ * to get an adapter to pass to SASInterstitialManager.loadAd(). The pool refills itself after each pop, and replaces
+ * interstitials older than the configured expiry delay when sweeping them.
+ * <p>
+ * This class is not thread safe and must only be used from the main thread, except for {@link #removeExpiredBids()}
+ * which can be called from a {@link SASAmazonBidSweeper}.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonInterstitialPool implements SASAmazonBidHolder {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonInterstitialPool.class.getSimpleName();
+
+    // default number of interstitials kept ready
+    public static final int DEFAULT_POOL_SIZE = 1;
+
+    // context used to build the interstitials, weakly referenced so that the pool does not keep its Activity alive
+    private final WeakReference<Context> contextReference;
+
+    // Amazon interstitial slot ID
+    private final String slotId;
+
+    // number of interstitials kept ready
+    private final int poolSize;
+
+    // expiry delay of pooled interstitials, in milliseconds
+    private final long expiryMs;
+
+    // pooled interstitials, oldest first
+    private final ArrayDeque<PooledInterstitial> interstitials = new ArrayDeque<>();
+
+    // number of Amazon requests in progress
+    private int pendingRequestCount = 0;
+
+    // set once the pool is destroyed
+    private boolean destroyed = false;
+
+    // preallocated task dropping expired interstitials on the main thread, and replacing them
+    private final Runnable removeExpiredTask = new Runnable() {
+        @Override
+        public void run() {
+            if (removeExpiredInterstitials() > 0) {
+                warmUp();
+            }
+        }
+    };
+
+    // preallocated task counting the end of a request that did not pool any interstitial, on the main thread
+    private final Runnable requestEndedTask = new Runnable() {
+        @Override
+        public void run() {
+            pendingRequestCount--;
+        }
+    };
+
+    /**
+     * Creates a {@link SASAmazonInterstitialPool} keeping {@link #DEFAULT_POOL_SIZE} interstitial ready for
+     * {@link SASAmazonBidCache#DEFAULT_BID_EXPIRY_MS} milliseconds
+     */
+    public SASAmazonInterstitialPool(@NonNull Context context, @NonNull String slotId) {
+        this(context, slotId, DEFAULT_POOL_SIZE, SASAmazonBidCache.DEFAULT_BID_EXPIRY_MS);
+    }
+
+    /**
+     * Creates a {@link SASAmazonInterstitialPool}
+     *
+     * @param context  the context used to build the interstitials, only weakly referenced
+     * @param slotId   the Amazon interstitial slot ID
+     * @param poolSize the number of interstitials kept ready
+     * @param expiryMs the delay after which a pooled interstitial is dropped, in milliseconds
+     */
+    public SASAmazonInterstitialPool(@NonNull Context context, @NonNull String slotId, int poolSize, long expiryMs) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("The pool size must be strictly positive.");
+        }
+        if (expiryMs <= 0) {
+            throw new IllegalArgumentException("The expiry delay must be strictly positive.");
+        }
+        this.contextReference = new WeakReference<>(context);
+        this.slotId = slotId;
+        this.poolSize = poolSize;
+        this.expiryMs = expiryMs;
+    }
+
+    /**
+     * Drops expired interstitials and requests as many new ones as needed to fill the pool
+     */
+    public void warmUp() {
+        // no interstitial can be built anymore once the context is gone
+        if (destroyed || contextReference.get() == null) {
+            return;
+        }
+
+        removeExpiredInterstitials();
+
+        int missingCount = poolSize - interstitials.size() - pendingRequestCount;
+        for (int i = 0; i < missingCount; i++) {
+            requestInterstitial();
+        }
+    }
+
+    /**
+     * Removes an interstitial bidder adapter from the pool, preferably one whose creative is already loaded, and
+     * refills the pool.
+     *
+     * @return the interstitial bidder adapter, or null if the pool is empty
+     */
+    @Nullable
+    public SASAmazonInterstitialBidderAdapter pop() {
+        removeExpiredInterstitials();
+
+        PooledInterstitial selectedInterstitial = null;
+        for (PooledInterstitial pooledInterstitial : interstitials) {
+            if (pooledInterstitial.bidderAdapter.isCreativeLoaded()) {
+                selectedInterstitial = pooledInterstitial;
+                break;
+            }
+        }
+        if (selectedInterstitial == null) {
+            selectedInterstitial = interstitials.peekFirst();
+        }
+
+        SASAmazonInterstitialBidderAdapter bidderAdapter = null;
+        if (selectedInterstitial != null) {
+            interstitials.remove(selectedInterstitial);
+            bidderAdapter = selectedInterstitial.bidderAdapter;
+        }
+
+        warmUp();
+        return bidderAdapter;
+    }
+
+    /**
+     * Returns the number of pooled interstitials whose creative is loaded
+     */
+    public int getReadyCount() {
+        int readyCount = 0;
+        for (PooledInterstitial pooledInterstitial : interstitials) {
+            if (pooledInterstitial.bidderAdapter.isCreativeLoaded()) {
+                readyCount++;
+            }
+        }
+        return readyCount;
+    }
+
+    /**
+     * Drops the expired interstitials on the main thread, and requests new ones to replace them unless the pool is
+     * destroyed. Can be called from any thread.
+     */
+    @Override
+    public void removeExpiredBids() {
+        SASAmazonMainThreadDispatcher.dispatch(removeExpiredTask);
+    }
+
+    /**
+     * Drops all pooled interstitials and stops refilling the pool
+     */
+    public void destroy() {
+        destroyed = true;
+        for (PooledInterstitial pooledInterstitial : interstitials) {
+            pooledInterstitial.bidderAdapter.destroy();
+        }
+        interstitials.clear();
+    }
+
+    /**
+     * Drops the interstitials that expired or whose creative failed to load
+     *
+     * @return the number of dropped interstitials
+     */
+    private int removeExpiredInterstitials() {
+        int removedCount = 0;
+        long now = SystemClock.elapsedRealtime();
+        Iterator<PooledInterstitial> iterator = interstitials.iterator();
+        while (iterator.hasNext()) {
+            PooledInterstitial pooledInterstitial = iterator.next();
+            if (now - pooledInterstitial.timestamp > expiryMs
+                    || pooledInterstitial.bidderAdapter.isExpired()
+                    || pooledInterstitial.bidderAdapter.isCreativeFailed()) {
+                Log.i(TAG, "Pooled Amazon interstitial dropped for slot " + slotId);
+                pooledInterstitial.bidderAdapter.destroy();
+                iterator.remove();
+                removedCount++;
+            }
+        }
+        return removedCount;
+    }
+
+    /**
+     * Requests an Amazon interstitial bid, and preloads its creative if any
+     */
+    private void requestInterstitial() {
+        pendingRequestCount++;
+
+        DTBAdRequest adLoader = new DTBAdRequest();
+        adLoader.setSizes(new DTBAdSize.DTBInterstitialAdSize(slotId));
+        final long requestStartNanos = SASAmazonBidMetrics.now();
+        adLoader.loadAd(new DTBAdCallback() {
+            @Override
+            public void onSuccess(final DTBAdResponse dtbAdResponse) {
+                SASAmazonBidMetrics.reportEnd(slotId, SASAmazonBidMetrics.Stage.AMAZON_REQUEST_SUCCEEDED, requestStartNanos);
+
+                Context context = contextReference.get();
+                if (context == null) {
+                    SASAmazonMainThreadDispatcher.dispatch(requestEndedTask);
+                    return;
+                }
+
+                // the response is parsed off the main thread, only the pooling and the creative preloading run on it
+                SASAmazonBidderAdapterFactory.createInterstitialBidderAdapter(dtbAdResponse, context, new SASAmazonBidderAdapterFactory.Callback<SASAmazonInterstitialBidderAdapter>() {
+                    @Override
+                    public void onBidderAdapterCreated(@NonNull SASAmazonBidderAdapterResult<SASAmazonInterstitialBidderAdapter> result) {
+                        pendingRequestCount--;
+                        SASAmazonInterstitialBidderAdapter bidderAdapter = result.getBidderAdapter();
+                        if (destroyed) {
+                            if (bidderAdapter != null) {
+                                bidderAdapter.destroy();
+                            }
+                            return;
+                        }
+
+                        if (bidderAdapter != null) {
+                            bidderAdapter.preloadCreative();
+                            interstitials.offer(new PooledInterstitial(bidderAdapter, SystemClock.elapsedRealtime()));
+                        } else if (result.getRejectionReason() != null) {
+                            Log.i(TAG, "Amazon interstitial bid for slot " + slotId + " cannot be used: " + result.getRejectionReason().getMessage());
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(AdError adError) {
+                SASAmazonBidMetrics.reportEnd(slotId, SASAmazonBidMetrics.Stage.AMAZON_REQUEST_FAILED, requestStartNanos);
+                Log.i(TAG, "Amazon interstitial request failed for slot " + slotId + ": " + adError.getMessage());
+                SASAmazonMainThreadDispatcher.dispatch(requestEndedTask);
+            }
+        });
+    }
+
+    /**
+     * An interstitial bidder adapter along with the time at which it was pooled
+     */
+    private static class PooledInterstitial {
+
+        // the pooled interstitial bidder adapter
+        final SASAmazonInterstitialBidderAdapter bidderAdapter;
+
+        // pooling time, from SystemClock.elapsedRealtime()
+        final long timestamp;
+
+        PooledInterstitial(SASAmazonInterstitialBidderAdapter bidderAdapter, long timestamp) {
+            this.bidderAdapter = bidderAdapter;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+/**
+ * This class is a compact, fixed-size histogram of latencies in milliseconds.
+ * Latencies are counted in log-linear buckets (four buckets per power of two, so about 25% resolution) up to about
+ * one minute, which keeps the memory footprint at {@link #BUCKET_COUNT} counters whatever the number of samples.
+ * <p>
+ * This class is thread safe.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonLatencyHistogram {
+
+    // number of buckets per power of two
+    private static final int SUB_BUCKETS = 4;
+
+    // log2 of SUB_BUCKETS
+    private static final int SUB_BUCKET_BITS = 2;
+
+    // highest power of two covered by the histogram, larger values go to the last bucket
+    private static final int MAX_EXPONENT = 16;
+
+    // number of buckets of the histogram
+    public static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // sample counts, by bucket
+    private final long[] counts = new long[BUCKET_COUNT];
+
+    // total number of samples
+    private long totalCount = 0;
+
+    /**
+     * Adds a latency sample
+     *
+     * @param latencyMs the latency, in milliseconds
+     */
+    public synchronized void record(long latencyMs) {
+        counts[getBucketIndex(latencyMs)]++;
+        totalCount++;
+    }
+
+    /**
+     * Returns the number of samples recorded so far
+     */
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the latency under which the given ratio of samples fall, rounded up to the upper bound of its bucket
+     *
+     * @param percentile the ratio of samples, between 0 and 1 (0.95 for the 95th percentile)
+     * @return the latency in milliseconds, or -1 if there is no sample
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return -1;
+        }
+
+        long threshold = (long) Math.ceil(Math.max(0, Math.min(1, percentile)) * totalCount);
+        long cumulatedCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulatedCount += counts[i];
+            if (cumulatedCount >= Math.max(1, threshold)) {
+                return getBucketUpperBound(i);
+            }
+        }
+        return getBucketUpperBound(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Returns a copy of the sample counts, by bucket
+     */
+    public synchronized long[] getCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * Replaces the sample counts of this histogram, for instance with counts saved by a previous session
+     *
+     * @param counts the sample counts, by bucket, as returned by {@link #getCounts()}
+     */
+    public synchronized void setCounts(long[] counts) {
+        if (counts.length != BUCKET_COUNT) {
+            throw new IllegalArgumentException("Expected " + BUCKET_COUNT + " buckets, got " + counts.length);
+        }
+        totalCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts[i] = Math.max(0, counts[i]);
+            totalCount += this.counts[i];
+        }
+    }
+
+    /**
+     * Halves all sample counts, so that recent samples weigh more than older ones
+     */
+    public synchronized void decay() {
+        totalCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] >>= 1;
+            totalCount += counts[i];
+        }
+    }
+
+    /**
+     * Removes all samples
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+    }
+
+    /**
+     * Returns the index of the bucket counting the given latency
+     */
+    static int getBucketIndex(long latencyMs) {
+        if (latencyMs < SUB_BUCKETS) {
+            return (int) Math.max(0, latencyMs);
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(latencyMs);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+
+        int subBucket = (int) (latencyMs >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the highest latency counted by the given bucket
+     */
+    static long getBucketUpperBound(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKETS) {
+            return bucketIndex;
+        }
+
+        int exponent = (bucketIndex - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (bucketIndex - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,187 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class is a debug tool reporting the Amazon bidder adapters that are never released, with the stack trace of their
+ * creation, to find the code paths that keep adapters (and the Activity they render in) alive.
+ * <p>
+ * Once enabled, each adapter created is tracked until {@link SASAmazonBaseBidderAdapter#release()} or
+ * {@link SASAmazonBaseBidderAdapter#destroy()} is called. An adapter garbage collected without being released is
+ * reported when the next adapter is created, and {@link #reportUnreleasedAdapters(long)} reports the adapters still
+ * alive and not released after a given age. Tracking captures a stack trace per adapter: do not enable it in release builds.
+ * <p>
+ * This class is thread safe.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public final class SASAmazonLeakTracker {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonLeakTracker.class.getSimpleName();
+
+    /**
+     * Listener notified of the adapters that were never released
+     */
+    public interface Listener {
+
+        /**
+         * Called for each adapter found not released
+         *
+         * @param slotId        the Amazon slot ID of the adapter
+         * @param ageMs         the time elapsed since the creation of the adapter, in milliseconds
+         * @param collected     true if the adapter was garbage collected without being released, false if it is still alive
+         * @param creationTrace the stack trace of the creation of the adapter
+         */
+        void onUnreleasedAdapter(@Nullable String slotId, long ageMs, boolean collected, @NonNull Throwable creationTrace);
+    }
+
+    // whether new adapters are tracked
+    private static volatile boolean enabled = false;
+
+    // listener notified of the unreleased adapters, logging them if null
+    @Nullable
+    private static volatile Listener listener = null;
+
+    // tracked adapters, not released yet
+    private static final Set<TrackedAdapter> trackedAdapters = new HashSet<>();
+
+    // queue of the tracked adapters garbage collected
+    private static final ReferenceQueue<SASAmazonBaseBidderAdapter> collectedAdapters = new ReferenceQueue<>();
+
+    private SASAmazonLeakTracker() {
+    }
+
+    /**
+     * Enables or disables the tracking of the adapters created afterwards, typically if BuildConfig.DEBUG
+     */
+    public static void setEnabled(boolean enabled) {
+        SASAmazonLeakTracker.enabled = enabled;
+    }
+
+    /**
+     * Sets the listener notified of the unreleased adapters
+     *
+     * @param listener the listener, or null to log them
+     */
+    public static void setListener(@Nullable Listener listener) {
+        SASAmazonLeakTracker.listener = listener;
+    }
+
+    /**
+     * Reports the adapters garbage collected without being released, and the tracked adapters still alive and not
+     * released after the given age
+     *
+     * @param minAgeMs the minimum age of the alive adapters to report, in milliseconds
+     * @return the number of adapters reported
+     */
+    public static int reportUnreleasedAdapters(long minAgeMs) {
+        int reportedCount = reportCollectedAdapters();
+
+        List<TrackedAdapter> aliveAdapters;
+        synchronized (trackedAdapters) {
+            aliveAdapters = new ArrayList<>(trackedAdapters);
+        }
+        long now = SystemClock.elapsedRealtime();
+        for (TrackedAdapter trackedAdapter : aliveAdapters) {
+            if (now - trackedAdapter.creationTime >= minAgeMs && trackedAdapter.get() != null) {
+                report(trackedAdapter, false);
+                reportedCount++;
+            }
+        }
+        return reportedCount;
+    }
+
+    /**
+     * Starts tracking an adapter, if enabled
+     *
+     * @return the tracking entry, to pass to {@link #untrack(TrackedAdapter)} when the adapter is released, or null if disabled
+     */
+    @Nullable
+    static TrackedAdapter track(@NonNull SASAmazonBaseBidderAdapter bidderAdapter, @Nullable String slotId) {
+        if (!enabled) {
+            return null;
+        }
+        reportCollectedAdapters();
+
+        TrackedAdapter trackedAdapter = new TrackedAdapter(bidderAdapter, slotId);
+        synchronized (trackedAdapters) {
+            trackedAdapters.add(trackedAdapter);
+        }
+        return trackedAdapter;
+    }
+
+    /**
+     * Stops tracking a released adapter
+     */
+    static void untrack(@Nullable TrackedAdapter trackedAdapter) {
+        if (trackedAdapter != null) {
+            synchronized (trackedAdapters) {
+                trackedAdapters.remove(trackedAdapter);
+            }
+        }
+    }
+
+    /**
+     * Reports the adapters garbage collected while still tracked
+     *
+     * @return the number of adapters reported
+     */
+    private static int reportCollectedAdapters() {
+        int reportedCount = 0;
+        TrackedAdapter trackedAdapter;
+        while ((trackedAdapter = (TrackedAdapter) collectedAdapters.poll()) != null) {
+            boolean unreleased;
+            synchronized (trackedAdapters) {
+                unreleased = trackedAdapters.remove(trackedAdapter);
+            }
+            if (unreleased) {
+                report(trackedAdapter, true);
+                reportedCount++;
+            }
+        }
+        return reportedCount;
+    }
+
+    private static void report(@NonNull TrackedAdapter trackedAdapter, boolean collected) {
+        long ageMs = SystemClock.elapsedRealtime() - trackedAdapter.creationTime;
+        Listener listener = SASAmazonLeakTracker.listener;
+        if (listener != null) {
+            listener.onUnreleasedAdapter(trackedAdapter.slotId, ageMs, collected, trackedAdapter.creationTrace);
+        } else {
+            Log.w(TAG, "Amazon bidder adapter for slot " + trackedAdapter.slotId + (collected ? " collected" : " still alive")
+                    + " without being released, " + ageMs + "ms after its creation", trackedAdapter.creationTrace);
+        }
+    }
+
+    /**
+     * A tracked adapter, weakly referenced
+     */
+    static final class TrackedAdapter extends WeakReference<SASAmazonBaseBidderAdapter> {
+
+        // the Amazon slot ID of the adapter
+        @Nullable
+        final String slotId;
+
+        // creation time of the adapter, from SystemClock.elapsedRealtime()
+        final long creationTime = SystemClock.elapsedRealtime();
+
+        // stack trace of the creation of the adapter
+        final Throwable creationTrace = new Throwable("Amazon bidder adapter created here");
+
+        TrackedAdapter(@NonNull SASAmazonBaseBidderAdapter bidderAdapter, @Nullable String slotId) {
+            super(bidderAdapter, collectedAdapters);
+            this.slotId = slotId;
+        }
+    }
+}
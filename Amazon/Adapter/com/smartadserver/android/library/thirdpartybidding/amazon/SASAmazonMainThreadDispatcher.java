@@ -0,0 +1,37 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.smartadserver.android.coresdk.util.SCSUtil;
+
+/**
+ * This class runs the Amazon adapters tasks that must be executed on the main thread: inline if the caller is
+ * already on the main thread, posted to the main looper otherwise.
+ * Tasks are meant to be preallocated by the caller, so that dispatching does not allocate anything.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+final class SASAmazonMainThreadDispatcher {
+
+    private SASAmazonMainThreadDispatcher() {
+    }
+
+    /**
+     * Returns whether the calling thread is the main thread
+     */
+    static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    /**
+     * Runs the given task on the main thread, inline if already on it
+     */
+    static void dispatch(@NonNull Runnable task) {
+        if (isMainThread()) {
+            task.run();
+        } else {
+            SCSUtil.getMainLooperHandler().post(task);
+        }
+    }
+}
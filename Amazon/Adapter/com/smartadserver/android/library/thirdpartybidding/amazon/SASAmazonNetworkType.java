@@ -0,0 +1,77 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.telephony.TelephonyManager;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Coarse network types, used to keep separate Amazon latency statistics for networks with very different round-trip times.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public enum SASAmazonNetworkType {
+    WIFI,
+    CELLULAR_2G,
+    CELLULAR_3G,
+    CELLULAR_4G,
+    CELLULAR_5G,
+    UNKNOWN;
+
+    // value of TelephonyManager.NETWORK_TYPE_NR, only defined from API 29 while the sample compiles against API 28
+    private static final int NETWORK_TYPE_NR = 20;
+
+    /**
+     * Returns the type of the currently active network, or {@link #UNKNOWN} if it cannot be determined
+     * (no active network or missing ACCESS_NETWORK_STATE permission)
+     */
+    @NonNull
+    @SuppressWarnings("deprecation")
+    public static SASAmazonNetworkType getCurrent(@NonNull Context context) {
+        NetworkInfo networkInfo;
+        try {
+            ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            networkInfo = connectivityManager != null ? connectivityManager.getActiveNetworkInfo() : null;
+        } catch (SecurityException e) {
+            return UNKNOWN;
+        }
+
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return UNKNOWN;
+        }
+
+        switch (networkInfo.getType()) {
+            case ConnectivityManager.TYPE_WIFI:
+            case ConnectivityManager.TYPE_ETHERNET:
+                return WIFI;
+            case ConnectivityManager.TYPE_MOBILE:
+                return fromMobileSubtype(networkInfo.getSubtype());
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    /**
+     * Returns the generation of a mobile network from its TelephonyManager network type
+     */
+    @NonNull
+    private static SASAmazonNetworkType fromMobileSubtype(int subtype) {
+        switch (subtype) {
+            case TelephonyManager.NETWORK_TYPE_UNKNOWN:
+                return UNKNOWN;
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+            case TelephonyManager.NETWORK_TYPE_IDEN:
+                return CELLULAR_2G;
+            case TelephonyManager.NETWORK_TYPE_LTE:
+                return CELLULAR_4G;
+            case NETWORK_TYPE_NR:
+                return CELLULAR_5G;
+            default:
+                return CELLULAR_3G;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class maps Amazon pricepoints (the 'amznslots' value of an Amazon response) to a CPM, so that Amazon bidder adapters
+ * can compete on price instead of keywords.
+ * <p>
+ * A price table can be loaded from a compact text file, typically a local asset, with one 'pricepoint=cpm' entry per line,
+ * an optional 'currency=XXX' line (USD by default) and '#' comment lines:
+ * <pre>
+ * currency=USD
+ * o320x50p1=0.10
+ * o320x50p2=0.20
+ * </pre>
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonPriceTable {
+
+    // currency used when none is specified
+    public static final String DEFAULT_CURRENCY = "USD";
+
+    // key of the currency line in price table files
+    private static final String CURRENCY_KEY = "currency";
+
+    // CPMs by pricepoint
+    private final Map<String, Double> prices;
+
+    // currency of all CPMs of this table
+    private final String currency;
+
+    /**
+     * Creates a {@link SASAmazonPriceTable}
+     *
+     * @param prices   the CPMs by Amazon pricepoint, finite and positive
+     * @param currency the currency of the CPMs
+     */
+    public SASAmazonPriceTable(@NonNull Map<String, Double> prices, @NonNull String currency) {
+        for (Map.Entry<String, Double> entry : prices.entrySet()) {
+            Double price = entry.getValue();
+            if (price == null || price.isNaN() || price.isInfinite() || price < 0) {
+                throw new IllegalArgumentException("Invalid CPM for Amazon pricepoint " + entry.getKey() + ": " + price);
+            }
+        }
+        this.prices = new HashMap<>(prices);
+        this.currency = currency;
+    }
+
+    /**
+     * Loads a {@link SASAmazonPriceTable} from an asset of the application
+     *
+     * @param context   the application context
+     * @param assetName the name of the price table asset
+     * @throws IOException if the asset cannot be read or is malformed
+     */
+    @NonNull
+    public static SASAmazonPriceTable fromAsset(@NonNull Context context, @NonNull String assetName) throws IOException {
+        InputStream inputStream = context.getAssets().open(assetName);
+        try {
+            return fromStream(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Reads a {@link SASAmazonPriceTable} from a stream. The stream is not closed.
+     *
+     * @throws IOException if the stream cannot be read or is malformed, or if a CPM is NaN, infinite or negative
+     */
+    @NonNull
+    public static SASAmazonPriceTable fromStream(@NonNull InputStream inputStream) throws IOException {
+        Map<String, Double> prices = new HashMap<>();
+        String currency = DEFAULT_CURRENCY;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() == 0 || line.charAt(0) == '#') {
+                continue;
+            }
+
+            int separatorIndex = line.indexOf('=');
+            if (separatorIndex <= 0) {
+                throw new IOException("Malformed Amazon price table entry at line " + lineNumber + ": " + line);
+            }
+
+            String key = line.substring(0, separatorIndex).trim();
+            String value = line.substring(separatorIndex + 1).trim();
+
+            if (CURRENCY_KEY.equals(key)) {
+                currency = value;
+            } else {
+                double price;
+                try {
+                    price = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed Amazon price table CPM at line " + lineNumber + ": " + value);
+                }
+                // a NaN, infinite or negative CPM would win or lose every auction regardless of the other bids
+                if (Double.isNaN(price) || Double.isInfinite(price) || price < 0) {
+                    throw new IOException("Invalid Amazon price table CPM at line " + lineNumber + ": " + value);
+                }
+                prices.put(key, price);
+            }
+        }
+
+        return new SASAmazonPriceTable(prices, currency);
+    }
+
+    /**
+     * Returns the CPM of the given Amazon pricepoint, or null if the pricepoint is not in this table
+     */
+    @Nullable
+    public Double getPrice(@NonNull String pricepoint) {
+        return prices.get(pricepoint);
+    }
+
+    /**
+     * Returns the currency of the CPMs of this table
+     */
+    @NonNull
+    public String getCurrency() {
+        return currency;
+    }
+}
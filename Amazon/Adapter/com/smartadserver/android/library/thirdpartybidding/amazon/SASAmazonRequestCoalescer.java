@@ -0,0 +1,169 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.amazon.device.ads.AdError;
+import com.amazon.device.ads.DTBAdCallback;
+import com.amazon.device.ads.DTBAdRequest;
+import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class makes concurrent Amazon requests for the same slot and the same set of ad sizes share a single in-flight
+ * Amazon call: callers asking while a request is pending join it instead of sending a duplicate request.
+ * <p>
+ * An Amazon bid can only be used once, so a response is only handed to the first caller of the request: the callers
+ * that joined it are notified right away of a no fill, as if Amazon had not bid for them, instead of waiting for a
+ * request of their own. A failure, including a request that cannot be sent, is reported to all callers.
+ * <p>
+ * {@link SASAmazonBidOrchestrator}, {@link SASAmazonBidCache} and {@link SASAmazonBidder} send their requests through
+ * the shared instance returned by {@link #getSharedInstance()}, so that a refresh triggered while a prefetch or another
+ * auction is pending for the same slot does not double the Amazon traffic.
+ * <p>
+ * This class is thread safe.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASAmazonRequestCoalescer {
+
+    // tag for logging purposes
+    private static final String TAG = SASAmazonRequestCoalescer.class.getSimpleName();
+
+    // message of the no fill reported to the callers that joined a request whose bid went to its first caller
+    static final String BID_ALREADY_USED_MESSAGE = "Amazon bid of the shared request already used by another caller";
+
+    // instance shared by all the Amazon requests of the adapter
+    private static final SASAmazonRequestCoalescer SHARED_INSTANCE = new SASAmazonRequestCoalescer();
+
+    // callbacks waiting for the pending Amazon requests, by request key
+    private final Map<String, List<DTBAdCallback>> pendingCallbacks = new HashMap<>();
+
+    /**
+     * Returns the coalescer shared by all the Amazon requests of the adapter
+     */
+    @NonNull
+    public static SASAmazonRequestCoalescer getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Requests an Amazon bid for the given ad sizes, or joins the pending request for the same slot and ad sizes if any.
+     *
+     * @param callback the callback notified of the Amazon response, on the thread the Amazon SDK calls back on
+     * @param adSizes  the Amazon ad sizes to request, in any order
+     */
+    public void loadAd(@NonNull DTBAdCallback callback, @NonNull DTBAdSize... adSizes) {
+        if (adSizes.length == 0) {
+            throw new IllegalArgumentException("At least one ad size is needed to request an Amazon bid.");
+        }
+
+        final String requestKey = getRequestKey(adSizes);
+
+        synchronized (this) {
+            List<DTBAdCallback> callbacks = pendingCallbacks.get(requestKey);
+            if (callbacks != null) {
+                Log.i(TAG, "Joining pending Amazon request for slot " + adSizes[0].getSlotUUID());
+                callbacks.add(callback);
+                return;
+            }
+            callbacks = new ArrayList<>(2);
+            callbacks.add(callback);
+            pendingCallbacks.put(requestKey, callbacks);
+        }
+
+        sendRequest(requestKey, adSizes);
+    }
+
+    /**
+     * Sends the Amazon request for the callbacks pending with the given key. If the request cannot be sent, the pending
+     * entry is removed so that later requests for the same key are not stuck joining it, the callers that joined it
+     * meanwhile are notified of the failure, and the exception is rethrown to the first caller.
+     */
+    private void sendRequest(@NonNull final String requestKey, @NonNull final DTBAdSize[] adSizes) {
+        try {
+            DTBAdRequest adLoader = new DTBAdRequest();
+            adLoader.setSizes(adSizes);
+            adLoader.loadAd(new DTBAdCallback() {
+                @Override
+                public void onSuccess(DTBAdResponse dtbAdResponse) {
+                    List<DTBAdCallback> callbacks = removeCallbacks(requestKey);
+                    if (callbacks.isEmpty()) {
+                        return;
+                    }
+
+                    // the bid can only be used once: it goes to the first caller, the joiners get a no fill
+                    callbacks.get(0).onSuccess(dtbAdResponse);
+                    if (callbacks.size() > 1) {
+                        AdError noFill = new AdError(AdError.ErrorCode.NO_FILL, BID_ALREADY_USED_MESSAGE);
+                        notifyJoinedCallbacks(callbacks, noFill);
+                    }
+                }
+
+                @Override
+                public void onFailure(AdError adError) {
+                    for (DTBAdCallback callback : removeCallbacks(requestKey)) {
+                        callback.onFailure(adError);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            List<DTBAdCallback> callbacks = removeCallbacks(requestKey);
+            if (callbacks.size() > 1) {
+                Log.e(TAG, "Amazon request for slot " + adSizes[0].getSlotUUID() + " could not be sent: " + e.getMessage());
+                notifyJoinedCallbacks(callbacks, new AdError(AdError.ErrorCode.INTERNAL_ERROR, "Amazon request could not be sent: " + e.getMessage()));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Notifies the callbacks that joined a request, all but the first one, of the given error
+     */
+    private static void notifyJoinedCallbacks(@NonNull List<DTBAdCallback> callbacks, @NonNull AdError adError) {
+        for (int i = 1; i < callbacks.size(); i++) {
+            callbacks.get(i).onFailure(adError);
+        }
+    }
+
+    /**
+     * Returns whether an Amazon request is pending for the given slot and ad sizes
+     */
+    public synchronized boolean isPending(@NonNull DTBAdSize... adSizes) {
+        return pendingCallbacks.containsKey(getRequestKey(adSizes));
+    }
+
+    /**
+     * Ends the pending request with the given key, returning the callbacks to notify of its outcome
+     */
+    @NonNull
+    private synchronized List<DTBAdCallback> removeCallbacks(@NonNull String requestKey) {
+        List<DTBAdCallback> callbacks = pendingCallbacks.remove(requestKey);
+        return callbacks != null ? callbacks : new ArrayList<DTBAdCallback>(0);
+    }
+
+    /**
+     * Returns a key identifying the slot and the set of ad sizes of a request, whatever the order of the sizes
+     */
+    @NonNull
+    static String getRequestKey(@NonNull DTBAdSize... adSizes) {
+        String[] sizeKeys = new String[adSizes.length];
+        for (int i = 0; i < adSizes.length; i++) {
+            DTBAdSize adSize = adSizes[i];
+            sizeKeys[i] = adSize.getSlotUUID() + ':' + (adSize.isInterstitialAd() ? "interstitial" : adSize.getWidth() + "x" + adSize.getHeight());
+        }
+        Arrays.sort(sizeKeys);
+
+        StringBuilder builder = new StringBuilder();
+        for (String sizeKey : sizeKeys) {
+            builder.append(sizeKey).append(',');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+
+/**
+ * This class runs a task once a view comes within a given distance of the visible area of its window, typically when a
+ * banner of a scrolling feed is about to be scrolled to. The position of the view is checked on each scroll and
+ * layout of its window while it is attached, without allocation.
+ * <p>
+ * This class is not thread safe and must only be used from the main thread.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+class SASAmazonViewportGate implements View.OnAttachStateChangeListener, ViewTreeObserver.OnScrollChangedListener,
+        ViewTreeObserver.OnGlobalLayoutListener {
+
+    // the watched view
+    private final View view;
+
+    // distance to the visible area of the window at which the task runs, in pixels
+    private final int distancePx;
+
+    // task to run once the view is close enough to the visible area
+    private final Runnable task;
+
+    // observer the scroll and layout listeners are registered to, null when not registered
+    private ViewTreeObserver viewTreeObserver = null;
+
+    // set once the task has run or the gate is closed
+    private boolean done = false;
+
+    // preallocated screen locations of the view and of the root view
+    private final int[] viewLocation = new int[2];
+    private final int[] rootLocation = new int[2];
+
+    /**
+     * Creates a {@link SASAmazonViewportGate}, that starts watching the view right away
+     *
+     * @param view       the view to watch
+     * @param distancePx the distance to the visible area of the window at which the task runs, in pixels
+     * @param task       the task to run, once, on the main thread
+     */
+    SASAmazonViewportGate(@NonNull View view, int distancePx, @NonNull Runnable task) {
+        this.view = view;
+        this.distancePx = distancePx;
+        this.task = task;
+
+        view.addOnAttachStateChangeListener(this);
+        if (view.isAttachedToWindow()) {
+            onViewAttachedToWindow(view);
+        }
+    }
+
+    /**
+     * Stops watching the view without running the task
+     */
+    void close() {
+        done = true;
+        unregisterListeners();
+        view.removeOnAttachStateChangeListener(this);
+    }
+
+    /**
+     * Returns whether the task has run or the gate is closed
+     */
+    boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Runs the task if the view is shown within the distance of the visible area of its window
+     */
+    private void check() {
+        if (done || !view.isShown()) {
+            return;
+        }
+
+        View rootView = view.getRootView();
+        view.getLocationOnScreen(viewLocation);
+        rootView.getLocationOnScreen(rootLocation);
+
+        boolean nearViewport = viewLocation[1] + view.getHeight() >= rootLocation[1] - distancePx
+                && viewLocation[1] <= rootLocation[1] + rootView.getHeight() + distancePx
+                && viewLocation[0] + view.getWidth() >= rootLocation[0] - distancePx
+                && viewLocation[0] <= rootLocation[0] + rootView.getWidth() + distancePx;
+
+        if (nearViewport) {
+            close();
+            task.run();
+        }
+    }
+
+    private void unregisterListeners() {
+        if (viewTreeObserver != null && viewTreeObserver.isAlive()) {
+            viewTreeObserver.removeOnScrollChangedListener(this);
+            viewTreeObserver.removeOnGlobalLayoutListener(this);
+        }
+        viewTreeObserver = null;
+    }
+
+    ///////////////////////////////////////////////////////////
+    // ATTACH STATE
+    ///////////////////////////////////////////////////////////
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+        if (done) {
+            return;
+        }
+        unregisterListeners();
+        viewTreeObserver = view.getViewTreeObserver();
+        viewTreeObserver.addOnScrollChangedListener(this);
+        viewTreeObserver.addOnGlobalLayoutListener(this);
+        check();
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        unregisterListeners();
+    }
+
+    ///////////////////////////////////////////////////////////
+    // SCROLL AND LAYOUT
+    ///////////////////////////////////////////////////////////
+
+    @Override
+    public void onScrollChanged() {
+        check();
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        check();
+    }
+}
@@ -0,0 +1,43 @@
+package android.content;
+
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+
+import java.io.File;
+
+/**
+ * Offline stand-in for the Android Context, used by the adapter benchmarks.
+ */
+public abstract class Context {
+
+    public static final String CONNECTIVITY_SERVICE = "connectivity";
+    public static final int MODE_PRIVATE = 0;
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public Resources getResources() {
+        return null;
+    }
+
+    public AssetManager getAssets() {
+        return null;
+    }
+
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        return null;
+    }
+
+    public File getFilesDir() {
+        return null;
+    }
+
+    public File getCacheDir() {
+        return null;
+    }
+
+    public Object getSystemService(String name) {
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package android.content;
+
+import java.util.Map;
+
+/**
+ * Offline stand-in for the Android SharedPreferences, used by the adapter benchmarks.
+ */
+public interface SharedPreferences {
+
+    String getString(String key, String defaultValue);
+
+    long getLong(String key, long defaultValue);
+
+    Map<String, ?> getAll();
+
+    Editor edit();
+
+    interface Editor {
+
+        Editor putString(String key, String value);
+
+        Editor putLong(String key, long value);
+
+        Editor remove(String key);
+
+        Editor clear();
+
+        void apply();
+
+        boolean commit();
+    }
+}
@@ -0,0 +1,15 @@
+package android.content.res;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Offline stand-in for the Android AssetManager, used by the adapter benchmarks.
+ */
+public class AssetManager {
+
+    public InputStream open(String fileName) throws IOException {
+        throw new FileNotFoundException(fileName);
+    }
+}
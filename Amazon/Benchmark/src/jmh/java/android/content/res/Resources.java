@@ -0,0 +1,15 @@
+package android.content.res;
+
+import android.util.DisplayMetrics;
+
+/**
+ * Offline stand-in for the Android Resources, used by the adapter benchmarks.
+ */
+public class Resources {
+
+    private final DisplayMetrics displayMetrics = new DisplayMetrics();
+
+    public DisplayMetrics getDisplayMetrics() {
+        return displayMetrics;
+    }
+}
@@ -0,0 +1,42 @@
+package android.graphics;
+
+/**
+ * Offline stand-in for the Android Rect, used by the adapter benchmarks.
+ */
+public class Rect {
+
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+
+    public Rect() {
+    }
+
+    public Rect(int left, int top, int right, int bottom) {
+        set(left, top, right, bottom);
+    }
+
+    public void set(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public boolean intersect(int left, int top, int right, int bottom) {
+        if (this.left < right && left < this.right && this.top < bottom && top < this.bottom) {
+            set(Math.max(this.left, left), Math.max(this.top, top), Math.min(this.right, right), Math.min(this.bottom, bottom));
+            return true;
+        }
+        return false;
+    }
+
+    public int width() {
+        return right - left;
+    }
+
+    public int height() {
+        return bottom - top;
+    }
+}
@@ -0,0 +1,15 @@
+package android.net;
+
+/**
+ * Offline stand-in for the Android ConnectivityManager, used by the adapter benchmarks.
+ */
+public class ConnectivityManager {
+
+    public static final int TYPE_MOBILE = 0;
+    public static final int TYPE_WIFI = 1;
+    public static final int TYPE_ETHERNET = 9;
+
+    public NetworkInfo getActiveNetworkInfo() {
+        return null;
+    }
+}
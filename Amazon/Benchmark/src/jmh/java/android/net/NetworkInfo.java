@@ -0,0 +1,19 @@
+package android.net;
+
+/**
+ * Offline stand-in for the Android NetworkInfo, used by the adapter benchmarks.
+ */
+public class NetworkInfo {
+
+    public int getType() {
+        return ConnectivityManager.TYPE_WIFI;
+    }
+
+    public int getSubtype() {
+        return 0;
+    }
+
+    public boolean isConnected() {
+        return true;
+    }
+}
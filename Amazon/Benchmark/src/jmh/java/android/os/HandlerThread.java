@@ -0,0 +1,27 @@
+package android.os;
+
+/**
+ * Offline stand-in for the Android HandlerThread, used by the adapter benchmarks.
+ */
+public class HandlerThread extends Thread {
+
+    public HandlerThread(String name) {
+        super(name);
+    }
+
+    public HandlerThread(String name, int priority) {
+        super(name);
+    }
+
+    public Looper getLooper() {
+        return null;
+    }
+
+    public boolean quit() {
+        return true;
+    }
+
+    public boolean quitSafely() {
+        return true;
+    }
+}
@@ -0,0 +1,12 @@
+package android.os;
+
+/**
+ * Offline stand-in for the Android Process, used by the adapter benchmarks.
+ */
+public class Process {
+
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+    public static void setThreadPriority(int priority) {
+    }
+}
@@ -0,0 +1,23 @@
+package android.os;
+
+/**
+ * Offline stand-in for the Android SystemClock, used by the adapter benchmarks. All clocks are based on
+ * System.nanoTime(), as the adapter only measures intervals.
+ */
+public final class SystemClock {
+
+    private SystemClock() {
+    }
+
+    public static long elapsedRealtimeNanos() {
+        return System.nanoTime();
+    }
+
+    public static long elapsedRealtime() {
+        return System.nanoTime() / 1000000;
+    }
+
+    public static long uptimeMillis() {
+        return System.nanoTime() / 1000000;
+    }
+}
@@ -0,0 +1,15 @@
+package android.telephony;
+
+/**
+ * Offline stand-in for the Android TelephonyManager, used by the adapter benchmarks.
+ */
+public class TelephonyManager {
+
+    public static final int NETWORK_TYPE_UNKNOWN = 0;
+    public static final int NETWORK_TYPE_GPRS = 1;
+    public static final int NETWORK_TYPE_EDGE = 2;
+    public static final int NETWORK_TYPE_CDMA = 4;
+    public static final int NETWORK_TYPE_1xRTT = 7;
+    public static final int NETWORK_TYPE_IDEN = 11;
+    public static final int NETWORK_TYPE_LTE = 13;
+}
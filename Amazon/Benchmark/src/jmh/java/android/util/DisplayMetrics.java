@@ -0,0 +1,11 @@
+package android.util;
+
+/**
+ * Offline stand-in for the Android DisplayMetrics, used by the adapter benchmarks.
+ */
+public class DisplayMetrics {
+
+    public int widthPixels;
+    public int heightPixels;
+    public float density = 1;
+}
@@ -0,0 +1,120 @@
+package android.view;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Rect;
+
+/**
+ * Offline stand-in for the Android View, used by the adapter benchmarks. The view is never attached nor laid out.
+ */
+public class View {
+
+    public static final int VISIBLE = 0;
+    public static final int INVISIBLE = 4;
+    public static final int GONE = 8;
+
+    public interface OnAttachStateChangeListener {
+
+        void onViewAttachedToWindow(View view);
+
+        void onViewDetachedFromWindow(View view);
+    }
+
+    private final Context context;
+    private final ViewTreeObserver viewTreeObserver = new ViewTreeObserver();
+    private ViewGroup.LayoutParams layoutParams;
+    private int visibility = VISIBLE;
+
+    public View(Context context) {
+        this.context = context;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public Resources getResources() {
+        return context != null ? context.getResources() : null;
+    }
+
+    public ViewParent getParent() {
+        return null;
+    }
+
+    public View getRootView() {
+        return this;
+    }
+
+    public ViewTreeObserver getViewTreeObserver() {
+        return viewTreeObserver;
+    }
+
+    public int getWidth() {
+        return 0;
+    }
+
+    public int getHeight() {
+        return 0;
+    }
+
+    public int getMeasuredWidth() {
+        return 0;
+    }
+
+    public int getMeasuredHeight() {
+        return 0;
+    }
+
+    public int getVisibility() {
+        return visibility;
+    }
+
+    public void setVisibility(int visibility) {
+        this.visibility = visibility;
+    }
+
+    public int getWindowVisibility() {
+        return GONE;
+    }
+
+    public boolean isShown() {
+        return false;
+    }
+
+    public boolean isAttachedToWindow() {
+        return false;
+    }
+
+    public void getLocationOnScreen(int[] location) {
+    }
+
+    public boolean getGlobalVisibleRect(Rect rect) {
+        return false;
+    }
+
+    public ViewGroup.LayoutParams getLayoutParams() {
+        return layoutParams;
+    }
+
+    public void setLayoutParams(ViewGroup.LayoutParams layoutParams) {
+        this.layoutParams = layoutParams;
+    }
+
+    public void addOnAttachStateChangeListener(OnAttachStateChangeListener listener) {
+    }
+
+    public void removeOnAttachStateChangeListener(OnAttachStateChangeListener listener) {
+    }
+
+    public boolean post(Runnable task) {
+        return true;
+    }
+
+    public boolean postDelayed(Runnable task, long delayMillis) {
+        return true;
+    }
+
+    public boolean removeCallbacks(Runnable task) {
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * Offline stand-in for the Android ViewGroup, used by the adapter benchmarks. Children are not kept.
+ */
+public class ViewGroup extends View implements ViewParent {
+
+    public static class LayoutParams {
+
+        public static final int MATCH_PARENT = -1;
+        public static final int WRAP_CONTENT = -2;
+
+        public int width;
+        public int height;
+
+        public LayoutParams(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public ViewGroup(Context context) {
+        super(context);
+    }
+
+    public void addView(View child) {
+    }
+
+    public void addView(View child, LayoutParams layoutParams) {
+    }
+
+    public void removeView(View child) {
+    }
+
+    public void removeAllViews() {
+    }
+
+    public int getChildCount() {
+        return 0;
+    }
+}
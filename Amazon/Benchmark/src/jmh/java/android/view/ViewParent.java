@@ -0,0 +1,7 @@
+package android.view;
+
+/**
+ * Offline stand-in for the Android ViewParent, used by the adapter benchmarks.
+ */
+public interface ViewParent {
+}
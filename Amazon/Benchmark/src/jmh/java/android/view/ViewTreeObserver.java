@@ -0,0 +1,44 @@
+package android.view;
+
+/**
+ * Offline stand-in for the Android ViewTreeObserver, used by the adapter benchmarks. Listeners are never called.
+ */
+public class ViewTreeObserver {
+
+    public interface OnGlobalLayoutListener {
+
+        void onGlobalLayout();
+    }
+
+    public interface OnPreDrawListener {
+
+        boolean onPreDraw();
+    }
+
+    public interface OnScrollChangedListener {
+
+        void onScrollChanged();
+    }
+
+    public boolean isAlive() {
+        return true;
+    }
+
+    public void addOnGlobalLayoutListener(OnGlobalLayoutListener listener) {
+    }
+
+    public void removeOnGlobalLayoutListener(OnGlobalLayoutListener listener) {
+    }
+
+    public void addOnPreDrawListener(OnPreDrawListener listener) {
+    }
+
+    public void removeOnPreDrawListener(OnPreDrawListener listener) {
+    }
+
+    public void addOnScrollChangedListener(OnScrollChangedListener listener) {
+    }
+
+    public void removeOnScrollChangedListener(OnScrollChangedListener listener) {
+    }
+}
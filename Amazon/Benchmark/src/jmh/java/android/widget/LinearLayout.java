@@ -0,0 +1,21 @@
+package android.widget;
+
+import android.content.Context;
+import android.view.ViewGroup;
+
+/**
+ * Offline stand-in for the Android LinearLayout, used by the adapter benchmarks.
+ */
+public class LinearLayout extends ViewGroup {
+
+    public static class LayoutParams extends ViewGroup.LayoutParams {
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+    }
+
+    public LinearLayout(Context context) {
+        super(context);
+    }
+}
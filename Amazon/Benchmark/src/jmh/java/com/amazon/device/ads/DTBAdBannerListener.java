@@ -0,0 +1,7 @@
+package com.amazon.device.ads;
+
+/**
+ * Offline stand-in for the Amazon SDK DTBAdBannerListener, used by the adapter benchmarks.
+ */
+public interface DTBAdBannerListener extends DTBAdListener {
+}
@@ -0,0 +1,18 @@
+package com.amazon.device.ads;
+
+import android.content.Context;
+
+/**
+ * Offline stand-in for the Amazon SDK DTBAdInterstitial, used by the adapter benchmarks. No creative is ever fetched.
+ */
+public class DTBAdInterstitial {
+
+    public DTBAdInterstitial(Context context, DTBAdInterstitialListener listener) {
+    }
+
+    public void fetchAd(String bidInfo) {
+    }
+
+    public void show() {
+    }
+}
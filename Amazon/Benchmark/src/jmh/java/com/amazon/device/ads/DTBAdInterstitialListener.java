@@ -0,0 +1,7 @@
+package com.amazon.device.ads;
+
+/**
+ * Offline stand-in for the Amazon SDK DTBAdInterstitialListener, used by the adapter benchmarks.
+ */
+public interface DTBAdInterstitialListener extends DTBAdListener {
+}
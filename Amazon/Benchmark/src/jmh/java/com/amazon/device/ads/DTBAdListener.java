@@ -0,0 +1,23 @@
+package com.amazon.device.ads;
+
+import android.view.View;
+
+/**
+ * Offline stand-in for the Amazon SDK DTBAdListener, used by the adapter benchmarks.
+ */
+public interface DTBAdListener {
+
+    void onAdLoaded(View view);
+
+    void onAdFailed(View view);
+
+    void onAdClicked(View view);
+
+    void onAdLeftApplication(View view);
+
+    void onAdOpen(View view);
+
+    void onAdClosed(View view);
+
+    void onImpressionFired(View view);
+}
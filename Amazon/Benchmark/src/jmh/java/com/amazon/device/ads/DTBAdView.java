@@ -0,0 +1,20 @@
+package com.amazon.device.ads;
+
+import android.content.Context;
+import android.view.View;
+
+/**
+ * Offline stand-in for the Amazon SDK DTBAdView, used by the adapter benchmarks. No creative is ever fetched.
+ */
+public class DTBAdView extends View {
+
+    public DTBAdView(Context context, DTBAdBannerListener listener) {
+        super(context);
+    }
+
+    public void fetchAd(String bidInfo) {
+    }
+
+    public void destroy() {
+    }
+}
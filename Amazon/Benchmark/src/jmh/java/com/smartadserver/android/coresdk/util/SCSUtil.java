@@ -0,0 +1,15 @@
+package com.smartadserver.android.coresdk.util;
+
+import android.os.Handler;
+
+/**
+ * Offline stand-in for the Smart core SDK SCSUtil, used by the adapter benchmarks.
+ */
+public class SCSUtil {
+
+    private static final Handler MAIN_LOOPER_HANDLER = new Handler();
+
+    public static Handler getMainLooperHandler() {
+        return MAIN_LOOPER_HANDLER;
+    }
+}
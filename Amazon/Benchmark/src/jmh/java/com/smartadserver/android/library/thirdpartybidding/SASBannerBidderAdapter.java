@@ -0,0 +1,9 @@
+package com.smartadserver.android.library.thirdpartybidding;
+
+/**
+ * Offline stand-in for the Smart SDK SASBannerBidderAdapter, used by the adapter benchmarks.
+ */
+public interface SASBannerBidderAdapter extends SASBidderAdapter {
+
+    void loadBidderBanner(SASBannerBidderAdapterListener listener);
+}
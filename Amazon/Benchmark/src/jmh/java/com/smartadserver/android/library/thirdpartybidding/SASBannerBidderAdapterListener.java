@@ -0,0 +1,21 @@
+package com.smartadserver.android.library.thirdpartybidding;
+
+import android.view.View;
+
+/**
+ * Offline stand-in for the Smart SDK SASBannerBidderAdapterListener, used by the adapter benchmarks.
+ */
+public interface SASBannerBidderAdapterListener {
+
+    void onBannerLoaded(View bannerView);
+
+    void adRequestFailed(String errorMessage, boolean isNoAd);
+
+    void onAdClicked();
+
+    void onAdFullScreen();
+
+    void onAdClosed();
+
+    void onAdLeftApplication();
+}
@@ -0,0 +1,43 @@
+package com.smartadserver.android.library.thirdpartybidding;
+
+/**
+ * Offline stand-in for the Smart SDK SASBidderAdapter, used by the adapter benchmarks.
+ */
+public interface SASBidderAdapter {
+
+    enum CompetitionType {
+        Price, Keyword
+    }
+
+    enum RenderingType {
+        PrimarySDK, Mediation, ThirdParty
+    }
+
+    String getAdapterName();
+
+    CompetitionType getCompetitionType();
+
+    RenderingType getRenderingType();
+
+    String getWinningSSPName();
+
+    String getWinningCreativeId();
+
+    double getPrice();
+
+    String getCurrency();
+
+    String getKeyword();
+
+    String getDealId();
+
+    void primarySDKLostBidCompetition();
+
+    String getBidderWinningAdMarkup();
+
+    void primarySDKDisplayedBidderAd();
+
+    void primarySDKClickedBidderAd();
+
+    void primarySDKRequestedThirdPartyRendering();
+}
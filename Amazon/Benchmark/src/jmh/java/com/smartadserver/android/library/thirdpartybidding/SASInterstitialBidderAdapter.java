@@ -0,0 +1,11 @@
+package com.smartadserver.android.library.thirdpartybidding;
+
+/**
+ * Offline stand-in for the Smart SDK SASInterstitialBidderAdapter, used by the adapter benchmarks.
+ */
+public interface SASInterstitialBidderAdapter extends SASBidderAdapter {
+
+    void loadBidderInterstitial(SASInterstitialBidderAdapterListener listener);
+
+    void showBidderInterstitial();
+}
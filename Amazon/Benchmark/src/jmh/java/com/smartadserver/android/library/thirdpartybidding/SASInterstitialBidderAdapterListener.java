@@ -0,0 +1,23 @@
+package com.smartadserver.android.library.thirdpartybidding;
+
+/**
+ * Offline stand-in for the Smart SDK SASInterstitialBidderAdapterListener, used by the adapter benchmarks.
+ */
+public interface SASInterstitialBidderAdapterListener {
+
+    void onInterstitialLoaded();
+
+    void onInterstitialShown();
+
+    void onInterstitialFailedToShow(String errorMessage);
+
+    void adRequestFailed(String errorMessage, boolean isNoAd);
+
+    void onAdClicked();
+
+    void onAdFullScreen();
+
+    void onAdClosed();
+
+    void onAdLeftApplication();
+}
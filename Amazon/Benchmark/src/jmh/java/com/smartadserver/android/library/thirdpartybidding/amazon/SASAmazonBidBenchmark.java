@@ -0,0 +1,176 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the Amazon bid parsing done when a bidder adapter is built, and of the accessors the Smart SDK
+ * calls when making the ad call, using stubbed Amazon custom parameters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class SASAmazonBidBenchmark {
+
+    // an Amazon slot ID
+    private static final String SLOT_ID = "b9cdd7a6-b2f4-4af9-b77d-1008aa1ea9d4";
+
+    // a bid ID as returned by Amazon
+    private static final String BID_ID = "2a8e2b4c-1f43-4a52-9d6a-3f1d3c5e7b90";
+
+    // a bid info as returned by Amazon
+    private static final String BID_INFO = "{\"bidId\":\"2a8e2b4c-1f43-4a52-9d6a-3f1d3c5e7b90\",\"hostname\":\"aax-us-east.amazon-adsystem.com\"}";
+
+    // custom parameters as returned by Amazon for a filled banner
+    private Map<String, List<String>> realisticParams;
+
+    // custom parameters with no pricepoint
+    private Map<String, List<String>> missingPricepointParams;
+
+    // custom parameters with an empty pricepoint list
+    private Map<String, List<String>> malformedPricepointParams;
+
+    // a parsed bid whose keyword has already been built
+    private SASAmazonBid parsedBid;
+
+    @Setup
+    public void setUp() {
+        realisticParams = new HashMap<>();
+        realisticParams.put("amzn_b", Collections.singletonList("2a8e2b4c-1f43-4a52-9d6a-3f1d3c5e7b90"));
+        realisticParams.put("amzn_h", Collections.singletonList("aax-us-east.amazon-adsystem.com"));
+        realisticParams.put("amznp", Collections.singletonList("1y7a2o"));
+        realisticParams.put("amznslots", Collections.singletonList("o320x50p12"));
+        realisticParams.put("dc", Collections.singletonList("iad"));
+
+        missingPricepointParams = new HashMap<>(realisticParams);
+        missingPricepointParams.remove("amznslots");
+
+        malformedPricepointParams = new HashMap<>(realisticParams);
+        malformedPricepointParams.put("amznslots", Collections.<String>emptyList());
+
+        parsedBid = parse(SLOT_ID, BID_ID, realisticParams, BID_INFO);
+        parsedBid.getKeyword();
+    }
+
+    @Benchmark
+    public SASAmazonBid parseRealisticParams() {
+        return parse(SLOT_ID, BID_ID, realisticParams, BID_INFO);
+    }
+
+    @Benchmark
+    public void parseAndBuildKeyword(Blackhole blackhole) {
+        SASAmazonBid bid = parse(SLOT_ID, BID_ID, realisticParams, BID_INFO);
+        blackhole.consume(bid.getKeyword());
+        blackhole.consume(bid.bidId);
+    }
+
+    @Benchmark
+    public Object parseMissingPricepoint() {
+        try {
+            return parse(SLOT_ID, BID_ID, missingPricepointParams, BID_INFO);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseMalformedPricepoint() {
+        try {
+            return parse(SLOT_ID, BID_ID, malformedPricepointParams, BID_INFO);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseMissingBidInfo() {
+        try {
+            return parse(SLOT_ID, BID_ID, realisticParams, null);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseNullParams() {
+        try {
+            return parse(SLOT_ID, BID_ID, null, BID_INFO);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Reference: the throwing parsing, reporting an invalid response with an exception as the adapter constructors do,
+     * to compare with {@link SASAmazonBid#tryParse}
+     */
+    private static SASAmazonBid parse(String slotId, String bidId, Map<String, List<String>> customParams, String bidInfo) throws IllegalArgumentException {
+        SASAmazonBid bid = SASAmazonBid.tryParse(slotId, bidId, customParams, bidInfo);
+        if (bid.rejectionReason != null) {
+            throw new IllegalArgumentException(bid.rejectionReason.getMessage());
+        }
+        return bid;
+    }
+
+    @Benchmark
+    public SASAmazonBid tryParseMissingPricepoint() {
+        return SASAmazonBid.tryParse(SLOT_ID, BID_ID, missingPricepointParams, BID_INFO);
+    }
+
+    @Benchmark
+    public SASAmazonBid tryParseMalformedPricepoint() {
+        return SASAmazonBid.tryParse(SLOT_ID, BID_ID, malformedPricepointParams, BID_INFO);
+    }
+
+    @Benchmark
+    public SASAmazonBid tryParseMissingBidInfo() {
+        return SASAmazonBid.tryParse(SLOT_ID, BID_ID, realisticParams, null);
+    }
+
+    /**
+     * Reference: the parsing done by the adapter constructor before {@link SASAmazonBid} was introduced,
+     * with repeated map lookups and an eagerly built keyword
+     */
+    @Benchmark
+    public void legacyParseRealisticParams(Blackhole blackhole) {
+        Map<String, List<String>> customParams = realisticParams;
+        String amznslots;
+        String keyword;
+        String amzn_h = "";
+        String amzn_b = "";
+        if (customParams.get("amznslots") != null && customParams.get("amznslots").size() > 0) {
+            amznslots = customParams.get("amznslots").get(0);
+            keyword = "amznslots=" + customParams.get("amznslots").get(0);
+        } else {
+            throw new IllegalArgumentException("No pricepoint found for Amazon's response.");
+        }
+        if (customParams.get("amzn_h") != null && customParams.get("amzn_h").size() > 0) {
+            amzn_h = customParams.get("amzn_h").get(0);
+        }
+        if (customParams.get("amzn_b") != null && customParams.get("amzn_b").size() > 0) {
+            amzn_b = customParams.get("amzn_b").get(0);
+        }
+        blackhole.consume(amznslots);
+        blackhole.consume(keyword);
+        blackhole.consume(amzn_h);
+        blackhole.consume(amzn_b);
+    }
+
+    @Benchmark
+    public void accessors(Blackhole blackhole) {
+        blackhole.consume(parsedBid.getKeyword());
+        blackhole.consume(parsedBid.bidId);
+    }
+}
@@ -0,0 +1,104 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import android.content.Context;
+
+import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the construction of the Amazon bidder adapters from stubbed Amazon responses, as done in
+ * DTBAdCallback.onSuccess() before the Smart ad call. No view is created, as the adapters only build them when rendering.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class SASAmazonBidderAdapterBenchmark {
+
+    // an Amazon slot ID
+    private static final String SLOT_ID = "b9cdd7a6-b2f4-4af9-b77d-1008aa1ea9d4";
+
+    // a bid ID as returned by Amazon
+    private static final String BID_ID = "2a8e2b4c-1f43-4a52-9d6a-3f1d3c5e7b90";
+
+    // a bid info as returned by Amazon
+    private static final String BID_INFO = "{\"bidId\":\"2a8e2b4c-1f43-4a52-9d6a-3f1d3c5e7b90\",\"hostname\":\"aax-us-east.amazon-adsystem.com\"}";
+
+    // context the adapters are built with
+    private Context context;
+
+    // Amazon response of a filled banner, with two sizes
+    private DTBAdResponse bannerResponse;
+
+    // Amazon response of a filled interstitial
+    private DTBAdResponse interstitialResponse;
+
+    // Amazon response of a banner with no pricepoint
+    private DTBAdResponse missingPricepointResponse;
+
+    @Setup
+    public void setUp() {
+        context = new Context() {
+        };
+
+        Map<String, List<String>> customParams = new HashMap<>();
+        customParams.put("amzn_b", Collections.singletonList(BID_ID));
+        customParams.put("amzn_h", Collections.singletonList("aax-us-east.amazon-adsystem.com"));
+        customParams.put("amznp", Collections.singletonList("1y7a2o"));
+        customParams.put("amznslots", Collections.singletonList("o320x50p12"));
+        customParams.put("dc", Collections.singletonList("iad"));
+
+        Map<String, List<String>> missingPricepointParams = new HashMap<>(customParams);
+        missingPricepointParams.remove("amznslots");
+
+        List<DTBAdSize> bannerSizes = Arrays.asList(new DTBAdSize(320, 50, SLOT_ID), new DTBAdSize(300, 250, SLOT_ID));
+        List<DTBAdSize> interstitialSizes = Collections.<DTBAdSize>singletonList(new DTBAdSize.DTBInterstitialAdSize(SLOT_ID));
+
+        bannerResponse = new DTBAdResponse(BID_ID, bannerSizes, customParams, BID_INFO);
+        interstitialResponse = new DTBAdResponse(BID_ID, interstitialSizes, customParams, BID_INFO);
+        missingPricepointResponse = new DTBAdResponse(BID_ID, bannerSizes, missingPricepointParams, BID_INFO);
+    }
+
+    @Benchmark
+    public SASAmazonBidderAdapterResult<SASAmazonBannerBidderAdapter> createBannerBidderAdapter() {
+        return SASAmazonBannerBidderAdapter.create(bannerResponse, context);
+    }
+
+    @Benchmark
+    public SASAmazonBidderAdapterResult<SASAmazonInterstitialBidderAdapter> createInterstitialBidderAdapter() {
+        return SASAmazonInterstitialBidderAdapter.create(interstitialResponse, context);
+    }
+
+    @Benchmark
+    public SASAmazonBidderAdapterResult<SASAmazonBannerBidderAdapter> createBannerBidderAdapterMissingPricepoint() {
+        return SASAmazonBannerBidderAdapter.create(missingPricepointResponse, context);
+    }
+
+    /**
+     * Reference: the throwing constructor, that creates the adapter the same way but reports an invalid response
+     * with an exception
+     */
+    @Benchmark
+    public SASAmazonBannerBidderAdapter constructBannerBidderAdapter() {
+        return new SASAmazonBannerBidderAdapter(bannerResponse, context);
+    }
+
+    @Benchmark
+    public SASAmazonInterstitialBidderAdapter constructInterstitialBidderAdapter() {
+        return new SASAmazonInterstitialBidderAdapter(interstitialResponse, context);
+    }
+}
@@ -0,0 +1,20 @@
+package com.smartadserver.android.library.util;
+
+import android.content.res.Resources;
+import android.os.Handler;
+
+/**
+ * Offline stand-in for the Smart SDK SASUtil, used by the adapter benchmarks.
+ */
+public class SASUtil {
+
+    private static final Handler MAIN_LOOPER_HANDLER = new Handler();
+
+    public static Handler getMainLooperHandler() {
+        return MAIN_LOOPER_HANDLER;
+    }
+
+    public static int getDimensionInPixels(int dimension, Resources resources) {
+        return (int) (dimension * resources.getDisplayMetrics().density);
+    }
+}
@@ -0,0 +1,32 @@
+package android.os;
+
+/**
+ * Offline stand-in for the Android Handler, used by the adapter benchmarks and the load test. Posted tasks are
+ * dropped, as the benchmarked paths never wait for them.
+ */
+public class Handler {
+
+    public Handler() {
+    }
+
+    public Handler(Looper looper) {
+    }
+
+    public Looper getLooper() {
+        return null;
+    }
+
+    public boolean post(Runnable task) {
+        return true;
+    }
+
+    public boolean postDelayed(Runnable task, long delayMillis) {
+        return true;
+    }
+
+    public void removeCallbacks(Runnable task) {
+    }
+
+    public void removeCallbacksAndMessages(Object token) {
+    }
+}
@@ -0,0 +1,23 @@
+package android.os;
+
+/**
+ * Offline stand-in for the Android Looper, used by the adapter benchmarks and the load test. There is no main
+ * looper: every thread is considered off the main thread.
+ */
+public class Looper {
+
+    public static Looper getMainLooper() {
+        return null;
+    }
+
+    public static Looper myLooper() {
+        return null;
+    }
+
+    public Thread getThread() {
+        return null;
+    }
+
+    public void quitSafely() {
+    }
+}
@@ -0,0 +1,40 @@
+package android.util;
+
+/**
+ * Offline stand-in for the Android Log class, used by the replay harness. Messages are dropped unless the
+ * 'replay.log' system property is set.
+ */
+public final class Log {
+
+    private static final boolean ENABLED = Boolean.getBoolean("replay.log");
+
+    private Log() {
+    }
+
+    public static int i(String tag, String message) {
+        return print("I", tag, message);
+    }
+
+    public static int d(String tag, String message) {
+        return print("D", tag, message);
+    }
+
+    public static int w(String tag, String message) {
+        return print("W", tag, message);
+    }
+
+    public static int w(String tag, String message, Throwable throwable) {
+        return print("W", tag, message + "\n" + throwable);
+    }
+
+    public static int e(String tag, String message) {
+        return print("E", tag, message);
+    }
+
+    private static int print(String level, String tag, String message) {
+        if (ENABLED) {
+            System.out.println(level + "/" + tag + ": " + message);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,27 @@
+package com.amazon.device.ads;
+
+/**
+ * Offline stand-in for the Amazon SDK AdError, used by the replay harness.
+ */
+public class AdError {
+
+    public enum ErrorCode {
+        NO_ERROR, NETWORK_ERROR, NETWORK_TIMEOUT, NO_FILL, INTERNAL_ERROR, REQUEST_ERROR
+    }
+
+    private final ErrorCode code;
+    private final String message;
+
+    public AdError(ErrorCode code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public ErrorCode getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
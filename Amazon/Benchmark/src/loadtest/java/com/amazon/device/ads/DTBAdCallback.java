@@ -0,0 +1,11 @@
+package com.amazon.device.ads;
+
+/**
+ * Offline stand-in for the Amazon SDK DTBAdCallback, used by the replay harness.
+ */
+public interface DTBAdCallback {
+
+    void onFailure(AdError adError);
+
+    void onSuccess(DTBAdResponse dtbAdResponse);
+}
@@ -0,0 +1,23 @@
+package com.amazon.device.ads;
+
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonReplayServer;
+
+/**
+ * Offline stand-in for the Amazon SDK DTBAdRequest, answered by the current {@link SASAmazonReplayServer}
+ * instead of the network.
+ */
+public class DTBAdRequest {
+
+    private DTBAdSize[] adSizes = new DTBAdSize[0];
+
+    public void setSizes(DTBAdSize... adSizes) {
+        this.adSizes = adSizes;
+    }
+
+    public void loadAd(DTBAdCallback callback) {
+        SASAmazonReplayServer.getCurrent().handleRequest(adSizes, callback);
+    }
+
+    public void stop() {
+    }
+}
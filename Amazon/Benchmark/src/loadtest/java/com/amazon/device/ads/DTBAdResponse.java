@@ -0,0 +1,42 @@
+package com.amazon.device.ads;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline stand-in for the Amazon SDK DTBAdResponse, built by the replay harness from recorded bids.
+ */
+public class DTBAdResponse {
+
+    private final String bidId;
+    private final List<DTBAdSize> adSizes;
+    private final Map<String, List<String>> customParams;
+    private final String bidInfo;
+
+    public DTBAdResponse(String bidId, List<DTBAdSize> adSizes, Map<String, List<String>> customParams, String bidInfo) {
+        this.bidId = bidId;
+        this.adSizes = adSizes;
+        this.customParams = customParams;
+        this.bidInfo = bidInfo;
+    }
+
+    public int getAdCount() {
+        return adSizes.size();
+    }
+
+    public String getBidId() {
+        return bidId;
+    }
+
+    public List<DTBAdSize> getDTBAds() {
+        return adSizes;
+    }
+
+    public Map<String, List<String>> getDefaultDisplayAdsRequestCustomParams() {
+        return customParams;
+    }
+
+    String getBidInfo() {
+        return bidInfo;
+    }
+}
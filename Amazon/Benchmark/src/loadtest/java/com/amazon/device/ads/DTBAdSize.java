@@ -0,0 +1,45 @@
+package com.amazon.device.ads;
+
+/**
+ * Offline stand-in for the Amazon SDK DTBAdSize, used by the replay harness.
+ */
+public class DTBAdSize {
+
+    private final int width;
+    private final int height;
+    private final String slotUUID;
+
+    public DTBAdSize(int width, int height, String slotUUID) {
+        this.width = width;
+        this.height = height;
+        this.slotUUID = slotUUID;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public String getSlotUUID() {
+        return slotUUID;
+    }
+
+    public boolean isInterstitialAd() {
+        return false;
+    }
+
+    public static class DTBInterstitialAdSize extends DTBAdSize {
+
+        public DTBInterstitialAdSize(String slotUUID) {
+            super(0, 0, slotUUID);
+        }
+
+        @Override
+        public boolean isInterstitialAd() {
+            return true;
+        }
+    }
+}
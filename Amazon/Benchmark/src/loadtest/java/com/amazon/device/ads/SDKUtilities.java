@@ -0,0 +1,18 @@
+package com.amazon.device.ads;
+
+import java.util.List;
+
+/**
+ * Offline stand-in for the Amazon SDK SDKUtilities, used by the replay harness.
+ */
+public class SDKUtilities {
+
+    public static String getBidInfo(DTBAdResponse adResponse) {
+        return adResponse.getBidInfo();
+    }
+
+    public static String getPricePoint(DTBAdResponse adResponse) {
+        List<String> values = adResponse.getDefaultDisplayAdsRequestCustomParams().get("amznslots");
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+}
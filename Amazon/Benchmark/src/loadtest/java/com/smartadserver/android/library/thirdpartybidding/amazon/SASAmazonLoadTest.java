@@ -0,0 +1,293 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import com.amazon.device.ads.AdError;
+import com.amazon.device.ads.DTBAdCallback;
+import com.amazon.device.ads.DTBAdRequest;
+import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
+import com.amazon.device.ads.SDKUtilities;
+import com.smartadserver.android.library.thirdpartybidding.common.SASBidder;
+import com.smartadserver.android.library.thirdpartybidding.common.SASLocalBidAuction;
+import com.smartadserver.android.library.thirdpartybidding.common.SASRankedBid;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline load test of the Amazon bidding path: drives thousands of simulated auctions, each one calling a replayed
+ * Amazon bidder and a synthetic competing bidder in a {@link SASLocalBidAuction}, and reports throughput, allocations,
+ * outcomes and timeouts.
+ * <p>
+ * The Amazon bidder goes through {@link SASAmazonRequestCoalescer} (unless coalesce=false) and builds its bids with
+ * {@link SASAmazonBid#tryParse}, like the bidder adapters do from an Amazon response. The rendering of the creative,
+ * which needs Android views, is not simulated.
+ * <p>
+ * Run with: gradle loadTest -Pargs="auctions=20000 concurrency=128 latencyMedianMs=400"
+ */
+public class SASAmazonLoadTest {
+
+    /**
+     * A bid of the load test, ranked by its CPM
+     */
+    static class ReplayBid implements SASRankedBid {
+
+        // the name of the bidder
+        final String bidderName;
+
+        // the CPM of the bid
+        final double cpm;
+
+        ReplayBid(String bidderName, double cpm) {
+            this.bidderName = bidderName;
+            this.cpm = cpm;
+        }
+
+        @Override
+        public double getBidValue() {
+            return cpm;
+        }
+
+        @Override
+        public void localAuctionLost() {
+            // nothing to release, the creative is not rendered
+        }
+    }
+
+    // load test settings, overridable with key=value arguments
+    private final Map<String, String> settings = new HashMap<>();
+
+    // outcome counters
+    private final AtomicLong amazonWinCount = new AtomicLong();
+    private final AtomicLong competitorWinCount = new AtomicLong();
+    private final AtomicLong noBidCount = new AtomicLong();
+    private final AtomicLong deadlineCount = new AtomicLong();
+    private final Map<SASAmazonBidRejectionReason, AtomicLong> rejectionCounts = new EnumMap<>(SASAmazonBidRejectionReason.class);
+
+    // auction durations, in simulated milliseconds
+    private final SASAmazonLatencyHistogram auctionLatencies = new SASAmazonLatencyHistogram();
+
+    private SASAmazonLoadTest(String[] args) {
+        settings.put("auctions", "10000");
+        settings.put("concurrency", "64");
+        settings.put("timeoutMs", "1000");
+        settings.put("latencyMedianMs", "300");
+        settings.put("latencySigma", "0.6");
+        settings.put("fillRate", "0.7");
+        settings.put("errorRate", "0.02");
+        settings.put("timeScale", "0.02");
+        settings.put("responseThreads", "4");
+        settings.put("coalesce", "true");
+        settings.put("recordings", "");
+
+        for (String arg : args) {
+            int separatorIndex = arg.indexOf('=');
+            if (separatorIndex <= 0 || !settings.containsKey(arg.substring(0, separatorIndex))) {
+                throw new IllegalArgumentException("Unknown argument: " + arg + ", expected one of " + settings.keySet());
+            }
+            settings.put(arg.substring(0, separatorIndex), arg.substring(separatorIndex + 1));
+        }
+
+        for (SASAmazonBidRejectionReason reason : SASAmazonBidRejectionReason.values()) {
+            rejectionCounts.put(reason, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new SASAmazonLoadTest(args).run();
+    }
+
+    private void run() throws Exception {
+        int auctionCount = Integer.parseInt(settings.get("auctions"));
+        int concurrency = Integer.parseInt(settings.get("concurrency"));
+        long timeoutMs = Long.parseLong(settings.get("timeoutMs"));
+        boolean coalesce = Boolean.parseBoolean(settings.get("coalesce"));
+
+        final SASAmazonReplayServer server = new SASAmazonReplayServer(readRecordedBids(),
+                Double.parseDouble(settings.get("latencyMedianMs")), Double.parseDouble(settings.get("latencySigma")),
+                Double.parseDouble(settings.get("fillRate")), Double.parseDouble(settings.get("errorRate")),
+                Double.parseDouble(settings.get("timeScale")), Integer.parseInt(settings.get("responseThreads")));
+        SASAmazonReplayServer.setCurrent(server);
+
+        ScheduledExecutorService competitorScheduler = Executors.newSingleThreadScheduledExecutor();
+
+        // one auction per slot, the deadline being scaled like the replayed latencies
+        long wallClockTimeoutMs = Math.max(1, server.toWallClockNanos(timeoutMs) / 1000000);
+        List<String> slotIds = server.getSlotIds();
+        List<SASLocalBidAuction<ReplayBid>> auctions = new ArrayList<>();
+        for (String slotId : slotIds) {
+            List<SASBidder<? extends ReplayBid>> bidders = new ArrayList<>();
+            bidders.add(createAmazonBidder(server, slotId, server.getAdSizes(slotId), coalesce));
+            bidders.add(createCompetitorBidder(server, competitorScheduler));
+            // without main thread, the outcome is recorded on the thread completing the auction
+            auctions.add(new SASLocalBidAuction<>(bidders, wallClockTimeoutMs, new Executor() {
+                @Override
+                public void execute(Runnable task) {
+                    task.run();
+                }
+            }));
+        }
+
+        System.out.println("Running " + auctionCount + " auctions on " + slotIds.size() + " slots, " + concurrency
+                + " at a time, settings: " + settings);
+
+        final Semaphore inFlightAuctions = new Semaphore(concurrency);
+        final long deadlineNanos = wallClockTimeoutMs * 1000000;
+        long allocatedBytesBefore = getAllocatedBytes();
+        long startNanos = System.nanoTime();
+
+        for (int i = 0; i < auctionCount; i++) {
+            inFlightAuctions.acquire();
+            final long auctionStartNanos = System.nanoTime();
+            auctions.get(i % auctions.size()).start(new SASLocalBidAuction.Listener<ReplayBid>() {
+                @Override
+                public void onAuctionCompleted(ReplayBid winningBid) {
+                    long durationNanos = System.nanoTime() - auctionStartNanos;
+                    auctionLatencies.record(server.toSimulatedMs(durationNanos));
+                    if (durationNanos >= deadlineNanos) {
+                        deadlineCount.incrementAndGet();
+                    }
+                    if (winningBid == null) {
+                        noBidCount.incrementAndGet();
+                    } else if ("Amazon".equals(winningBid.bidderName)) {
+                        amazonWinCount.incrementAndGet();
+                    } else {
+                        competitorWinCount.incrementAndGet();
+                    }
+                    inFlightAuctions.release();
+                }
+            });
+        }
+        inFlightAuctions.acquire(concurrency);
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long allocatedBytes = getAllocatedBytes() - allocatedBytesBefore;
+
+        server.shutdown();
+        competitorScheduler.shutdownNow();
+
+        System.out.println();
+        System.out.printf("Wall time:           %d ms%n", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        System.out.printf("Throughput:          %.0f auctions/s%n", auctionCount * 1e9 / elapsedNanos);
+        System.out.printf("Allocations:         %s%n", allocatedBytes >= 0 ? (allocatedBytes / auctionCount) + " B/auction" : "n/a");
+        System.out.printf("Amazon requests:     %d (%.2f per auction)%n", server.getRequestCount(), (double) server.getRequestCount() / auctionCount);
+        System.out.printf("Amazon wins:         %d%n", amazonWinCount.get());
+        System.out.printf("Competitor wins:     %d%n", competitorWinCount.get());
+        System.out.printf("No bid:              %d%n", noBidCount.get());
+        System.out.printf("Deadline reached:    %d (%.1f%%)%n", deadlineCount.get(), 100.0 * deadlineCount.get() / auctionCount);
+        System.out.printf("Rejected Amazon bids: %s%n", rejectionCounts);
+        System.out.printf("Auction duration:    p50 %d ms, p95 %d ms, p99 %d ms (simulated)%n",
+                auctionLatencies.getPercentile(0.5), auctionLatencies.getPercentile(0.95), auctionLatencies.getPercentile(0.99));
+    }
+
+    /**
+     * Returns the Amazon bidder of a slot, building its bids from the replayed Amazon responses
+     */
+    private SASBidder<ReplayBid> createAmazonBidder(final SASAmazonReplayServer server, final String slotId,
+                                                    final DTBAdSize[] adSizes, final boolean coalesce) {
+        return new SASBidder<ReplayBid>() {
+            @Override
+            public String getName() {
+                return "Amazon";
+            }
+
+            @Override
+            public void requestBid(final Callback<ReplayBid> callback) {
+                DTBAdCallback adCallback = new DTBAdCallback() {
+                    @Override
+                    public void onSuccess(DTBAdResponse dtbAdResponse) {
+                        // same parsing as SASAmazonBaseBidderAdapter.parseResponse()
+                        SASAmazonBid bid = SASAmazonBid.tryParse(slotId, dtbAdResponse.getBidId(),
+                                dtbAdResponse.getDefaultDisplayAdsRequestCustomParams(), SDKUtilities.getBidInfo(dtbAdResponse));
+                        if (bid.rejectionReason != null) {
+                            rejectionCounts.get(bid.rejectionReason).incrementAndGet();
+                            callback.onBidReceived(null);
+                        } else {
+                            callback.onBidReceived(new ReplayBid(getName(), server.getPrice(slotId, bid.amznslots)));
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(AdError adError) {
+                        callback.onBidReceived(null);
+                    }
+                };
+
+                if (coalesce) {
+                    SASAmazonRequestCoalescer.getSharedInstance().loadAd(adCallback, adSizes);
+                } else {
+                    DTBAdRequest adLoader = new DTBAdRequest();
+                    adLoader.setSizes(adSizes);
+                    adLoader.loadAd(adCallback);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a synthetic bidder answering after a uniform latency with a uniform CPM, half of the time
+     */
+    private SASBidder<ReplayBid> createCompetitorBidder(final SASAmazonReplayServer server, final ScheduledExecutorService scheduler) {
+        return new SASBidder<ReplayBid>() {
+            @Override
+            public String getName() {
+                return "Competitor";
+            }
+
+            @Override
+            public void requestBid(final Callback<ReplayBid> callback) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                final ReplayBid bid = random.nextBoolean() ? new ReplayBid(getName(), random.nextDouble(0, 2)) : null;
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onBidReceived(bid);
+                    }
+                }, server.toWallClockNanos(random.nextDouble(50, 400)), TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    /**
+     * Reads the recorded bids given in arguments, or the bundled ones
+     */
+    private List<SASAmazonReplayServer.RecordedBid> readRecordedBids() throws IOException {
+        String recordings = settings.get("recordings");
+        InputStream inputStream = recordings.isEmpty()
+                ? SASAmazonLoadTest.class.getResourceAsStream("/recorded-bids.txt")
+                : new FileInputStream(recordings);
+        try {
+            return SASAmazonReplayServer.readRecordedBids(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by all live threads, or -1 if not supported by the JVM
+     */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        long total = 0;
+        for (long allocatedBytes : ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            total += Math.max(0, allocatedBytes);
+        }
+        return total;
+    }
+}
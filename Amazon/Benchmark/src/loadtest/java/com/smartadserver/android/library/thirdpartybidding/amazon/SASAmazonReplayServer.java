@@ -0,0 +1,319 @@
+package com.smartadserver.android.library.thirdpartybidding.amazon;
+
+import com.amazon.device.ads.AdError;
+import com.amazon.device.ads.DTBAdCallback;
+import com.amazon.device.ads.DTBAdResponse;
+import com.amazon.device.ads.DTBAdSize;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class answers the requests of the offline DTBAdRequest stand-in by replaying recorded Amazon bids, with a
+ * log-normal latency distribution and configurable fill and error rates, so that the adapter can be load tested without
+ * the Amazon SDK nor network.
+ * <p>
+ * Recorded bids are read from text lines 'slotUUID;width;height;bidId;amznslots;amzn_h;amzn_b;bidInfo;cpm', '#' lines
+ * being comments.
+ */
+public class SASAmazonReplayServer {
+
+    // the server answering the requests of DTBAdRequest
+    private static volatile SASAmazonReplayServer current = null;
+
+    // recorded bids, by slot ID
+    private final Map<String, List<RecordedBid>> recordedBids;
+
+    // median and log-normal sigma of the response latency, in simulated milliseconds
+    private final double latencyMedianMs;
+    private final double latencySigma;
+
+    // ratio of requests answered with a bid, among those not failing
+    private final double fillRate;
+
+    // ratio of requests failing with a network error
+    private final double errorRate;
+
+    // ratio between wall clock time and simulated time, to run long scenarios quickly
+    private final double timeScale;
+
+    // threads delivering the responses, like the Amazon SDK network threads
+    private final ScheduledExecutorService responseScheduler;
+
+    // number of requests received
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * Creates a {@link SASAmazonReplayServer}
+     *
+     * @param recordedBids      the recorded bids to replay
+     * @param latencyMedianMs   the median response latency, in simulated milliseconds
+     * @param latencySigma      the sigma of the log-normal latency distribution (0 for a constant latency)
+     * @param fillRate          the ratio of requests answered with a bid, among those not failing
+     * @param errorRate         the ratio of requests failing with a network error
+     * @param timeScale         the ratio between wall clock time and simulated time
+     * @param responseThreadCount the number of threads delivering the responses
+     */
+    public SASAmazonReplayServer(List<RecordedBid> recordedBids, double latencyMedianMs, double latencySigma,
+                                 double fillRate, double errorRate, double timeScale, int responseThreadCount) {
+        if (recordedBids.isEmpty()) {
+            throw new IllegalArgumentException("At least one recorded bid is needed.");
+        }
+        this.recordedBids = new HashMap<>();
+        for (RecordedBid recordedBid : recordedBids) {
+            List<RecordedBid> slotBids = this.recordedBids.get(recordedBid.slotId);
+            if (slotBids == null) {
+                slotBids = new ArrayList<>();
+                this.recordedBids.put(recordedBid.slotId, slotBids);
+            }
+            slotBids.add(recordedBid);
+        }
+        this.latencyMedianMs = latencyMedianMs;
+        this.latencySigma = latencySigma;
+        this.fillRate = fillRate;
+        this.errorRate = errorRate;
+        this.timeScale = timeScale;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.responseScheduler = Executors.newScheduledThreadPool(responseThreadCount, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "replay-response-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the server answering the requests of DTBAdRequest
+     */
+    public static SASAmazonReplayServer getCurrent() {
+        SASAmazonReplayServer server = current;
+        if (server == null) {
+            throw new IllegalStateException("No replay server set, call SASAmazonReplayServer.setCurrent() first.");
+        }
+        return server;
+    }
+
+    /**
+     * Sets the server answering the requests of DTBAdRequest
+     */
+    public static void setCurrent(SASAmazonReplayServer server) {
+        current = server;
+    }
+
+    /**
+     * Reads recorded bids from a stream. The stream is not closed.
+     *
+     * @throws IOException if the stream cannot be read or is malformed
+     */
+    public static List<RecordedBid> readRecordedBids(InputStream inputStream) throws IOException {
+        List<RecordedBid> recordedBids = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() == 0 || line.charAt(0) == '#') {
+                continue;
+            }
+
+            String[] fields = line.split(";", -1);
+            if (fields.length != 9) {
+                throw new IOException("Malformed recorded bid at line " + lineNumber + ": " + line);
+            }
+            try {
+                recordedBids.add(new RecordedBid(fields[0], Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                        fields[3], fields[4], fields[5], fields[6], fields[7], Double.parseDouble(fields[8])));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed recorded bid at line " + lineNumber + ": " + line);
+            }
+        }
+        return recordedBids;
+    }
+
+    /**
+     * Returns the slot IDs having recorded bids
+     */
+    public List<String> getSlotIds() {
+        return new ArrayList<>(recordedBids.keySet());
+    }
+
+    /**
+     * Returns the recorded sizes of the given slot
+     */
+    public DTBAdSize[] getAdSizes(String slotId) {
+        List<RecordedBid> slotBids = recordedBids.get(slotId);
+        List<DTBAdSize> adSizes = new ArrayList<>();
+        for (RecordedBid recordedBid : slotBids) {
+            boolean known = false;
+            for (DTBAdSize adSize : adSizes) {
+                known |= adSize.getWidth() == recordedBid.width && adSize.getHeight() == recordedBid.height;
+            }
+            if (!known) {
+                adSizes.add(recordedBid.width > 0 ? new DTBAdSize(recordedBid.width, recordedBid.height, slotId)
+                        : new DTBAdSize.DTBInterstitialAdSize(slotId));
+            }
+        }
+        return adSizes.toArray(new DTBAdSize[0]);
+    }
+
+    /**
+     * Returns the CPM of the recorded bid having the given pricepoint, or 0 if unknown
+     */
+    public double getPrice(String slotId, String amznslots) {
+        List<RecordedBid> slotBids = recordedBids.get(slotId);
+        if (slotBids != null) {
+            for (RecordedBid recordedBid : slotBids) {
+                if (recordedBid.amznslots.equals(amznslots)) {
+                    return recordedBid.cpm;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of requests received so far
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Converts a simulated duration to a wall clock duration, in nanoseconds
+     */
+    public long toWallClockNanos(double simulatedMs) {
+        return (long) (simulatedMs * timeScale * 1000000);
+    }
+
+    /**
+     * Converts a wall clock duration to a simulated duration, in milliseconds
+     */
+    public long toSimulatedMs(long wallClockNanos) {
+        return (long) (wallClockNanos / timeScale / 1000000);
+    }
+
+    /**
+     * Answers a request after a random latency, with a random recorded bid of the requested slot and sizes, a no fill
+     * or a network error
+     */
+    public void handleRequest(DTBAdSize[] adSizes, final DTBAdCallback callback) {
+        requestCount.incrementAndGet();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double latencyMs = latencyMedianMs * Math.exp(latencySigma * random.nextGaussian());
+
+        final DTBAdResponse adResponse;
+        final AdError adError;
+        List<RecordedBid> candidates = adSizes.length > 0 ? findRecordedBids(adSizes) : Collections.<RecordedBid>emptyList();
+        if (random.nextDouble() < errorRate) {
+            adResponse = null;
+            adError = new AdError(AdError.ErrorCode.NETWORK_ERROR, "Simulated network error");
+        } else if (!candidates.isEmpty() && random.nextDouble() < fillRate) {
+            adResponse = candidates.get(random.nextInt(candidates.size())).toResponse();
+            adError = null;
+        } else {
+            adResponse = null;
+            adError = new AdError(AdError.ErrorCode.NO_FILL, "Simulated no fill");
+        }
+
+        responseScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (adResponse != null) {
+                    callback.onSuccess(adResponse);
+                } else {
+                    callback.onFailure(adError);
+                }
+            }
+        }, toWallClockNanos(latencyMs), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops delivering responses
+     */
+    public void shutdown() {
+        responseScheduler.shutdownNow();
+    }
+
+    /**
+     * Returns the recorded bids of the requested slot matching one of the requested sizes
+     */
+    private List<RecordedBid> findRecordedBids(DTBAdSize[] adSizes) {
+        List<RecordedBid> slotBids = recordedBids.get(adSizes[0].getSlotUUID());
+        if (slotBids == null) {
+            return Collections.emptyList();
+        }
+
+        List<RecordedBid> candidates = new ArrayList<>(slotBids.size());
+        for (RecordedBid recordedBid : slotBids) {
+            for (DTBAdSize adSize : adSizes) {
+                if (adSize.isInterstitialAd() ? recordedBid.width == 0
+                        : adSize.getWidth() == recordedBid.width && adSize.getHeight() == recordedBid.height) {
+                    candidates.add(recordedBid);
+                    break;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * A recorded Amazon bid
+     */
+    public static class RecordedBid {
+
+        final String slotId;
+        final int width;
+        final int height;
+        final String bidId;
+        final String amznslots;
+        final String amzn_h;
+        final String amzn_b;
+        final String bidInfo;
+        final double cpm;
+
+        RecordedBid(String slotId, int width, int height, String bidId, String amznslots, String amzn_h, String amzn_b,
+                    String bidInfo, double cpm) {
+            this.slotId = slotId;
+            this.width = width;
+            this.height = height;
+            this.bidId = bidId;
+            this.amznslots = amznslots;
+            this.amzn_h = amzn_h;
+            this.amzn_b = amzn_b;
+            this.bidInfo = bidInfo;
+            this.cpm = cpm;
+        }
+
+        /**
+         * Builds a fresh Amazon response from this recorded bid, as the Amazon SDK would for each request
+         */
+        DTBAdResponse toResponse() {
+            Map<String, List<String>> customParams = new HashMap<>();
+            customParams.put(SASAmazonBid.AMZNSLOTS, Collections.singletonList(amznslots));
+            customParams.put("amzn_h", Collections.singletonList(amzn_h));
+            customParams.put("amzn_b", Collections.singletonList(amzn_b));
+
+            DTBAdSize adSize = width > 0 ? new DTBAdSize(width, height, slotId) : new DTBAdSize.DTBInterstitialAdSize(slotId);
+            return new DTBAdResponse(bidId, Collections.singletonList(adSize), customParams, bidInfo.isEmpty() ? null : bidInfo);
+        }
+    }
+}
@@ -1,21 +1,24 @@
 package com.smartadserver.android.amazonhbsample;
 
 import android.os.Bundle;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import android.util.Log;
 import android.view.View;
 import android.webkit.WebView;
 import android.widget.Button;
 
-import com.amazon.device.ads.AdError;
 import com.amazon.device.ads.AdRegistration;
-import com.amazon.device.ads.DTBAdCallback;
-import com.amazon.device.ads.DTBAdRequest;
-import com.amazon.device.ads.DTBAdResponse;
 import com.amazon.device.ads.DTBAdSize;
 import com.smartadserver.android.library.model.SASAdElement;
 import com.smartadserver.android.library.model.SASAdPlacement;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonAdaptiveTimeout;
 import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonBannerBidderAdapter;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonBannerRefreshScheduler;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonBannerViewPool;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonBidCache;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonBidJournal;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonBidOrchestrator;
 import com.smartadserver.android.library.ui.SASBannerView;
 import com.smartadserver.android.library.ui.SASRotatingImageLoader;
 
@@ -42,6 +45,15 @@ public class HeaderBiddingBannerActivity extends AppCompatActivity {
     // Amazon HB banner slot ID
     public static final String AMAZON_BANNER_SLOT_ID = "b9cdd7a6-b2f4-4af9-b77d-1008aa1ea9d4";
 
+    // Interval between automatic banner refreshes
+    private final static long BANNER_REFRESH_INTERVAL_MS = 30 * 1000;
+
+    // Amazon ad sizes: all sizes are requested in a single Amazon call, and the one that fits best in the banner view is rendered
+    private final static DTBAdSize[] AMAZON_BANNER_AD_SIZES = new DTBAdSize[]{
+            new DTBAdSize(320, 50, AMAZON_BANNER_SLOT_ID),
+            new DTBAdSize(728, 90, AMAZON_BANNER_SLOT_ID)
+    };
+
     /*****************************************
      * Members declarations
      *****************************************/
@@ -51,6 +63,29 @@ public class HeaderBiddingBannerActivity extends AppCompatActivity {
     // Button declared in main.xml
     Button refreshBannerButton;
 
+    // Cache of prefetched Amazon bids, used to take the Amazon round-trip off the banner loading critical path.
+    // It is shared by all instances of this activity, so that it can be warmed up at application launch.
+    static final SASAmazonBidCache amazonBidCache = new SASAmazonBidCache();
+
+    // Runs Amazon auctions under a hard deadline, caching late bids for the next refresh
+    SASAmazonBidOrchestrator amazonBidOrchestrator = new SASAmazonBidOrchestrator(SASAmazonBidOrchestrator.DEFAULT_TIMEOUT_MS,
+            SASAmazonBidOrchestrator.LateBidPolicy.CACHE, amazonBidCache);
+
+    // Pool of Amazon banner views, reused across banner refreshes
+    SASAmazonBannerViewPool amazonBannerViewPool;
+
+    // Amazon deadline learned per slot and network type, persisted across launches
+    SASAmazonAdaptiveTimeout amazonAdaptiveTimeout;
+
+    // Amazon bidder adapter passed to the last banner ad call, if any
+    SASAmazonBannerBidderAdapter amazonBidderAdapter;
+
+    // Amazon bidder adapter of the banner still displayed while the next ad loads, released once that ad is loaded or failed
+    SASAmazonBannerBidderAdapter replacedAmazonBidderAdapter;
+
+    // Refreshes the banner, prefetching the Amazon bid shortly before each refresh
+    SASAmazonBannerRefreshScheduler bannerRefreshScheduler;
+
 
     /**
      * performs Activity initialization after creation
@@ -73,17 +108,51 @@ public class HeaderBiddingBannerActivity extends AppCompatActivity {
         // Initialize SASBannerView
         initBannerView();
 
-        // Create button to manually refresh the ad
+        // Initialize the pool of Amazon banner views
+        amazonBannerViewPool = new SASAmazonBannerViewPool(this);
+
+        // Learn the Amazon deadline from the latencies observed on this device
+        amazonAdaptiveTimeout = new SASAmazonAdaptiveTimeout(this);
+        amazonBidOrchestrator.setAdaptiveTimeout(amazonAdaptiveTimeout);
+
+        // Keep the Amazon responses on disk to warm up the next launches
+        SASAmazonBidJournal amazonBidJournal = SASAmazonBidJournal.getSharedInstance(this);
+        amazonBidJournal.warmUp(amazonAdaptiveTimeout);
+        amazonBidOrchestrator.setBidJournal(amazonBidJournal);
+        amazonBidCache.setBidJournal(amazonBidJournal);
+
+        // Refresh the banner automatically, pausing while it is hidden or the application is in background
+        bannerRefreshScheduler = new SASAmazonBannerRefreshScheduler(this, bannerView, amazonBidCache, BANNER_REFRESH_INTERVAL_MS,
+                new SASAmazonBannerRefreshScheduler.Listener() {
+                    @Override
+                    public void onRefresh() {
+                        loadBannerAd();
+                    }
+                }, AMAZON_BANNER_AD_SIZES);
+
+        // Create button to manually refresh the ad, the automatic refresh restarts from there
         refreshBannerButton = this.findViewById(R.id.reloadButton);
         refreshBannerButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
+                bannerRefreshScheduler.stop();
                 loadBannerAd();
+                bannerRefreshScheduler.start();
             }
         });
 
         // Load Banner ad
         loadBannerAd();
+        bannerRefreshScheduler.start();
+    }
+
+    /**
+     * Overriden to persist the latest Amazon latency statistics
+     */
+    @Override
+    protected void onPause() {
+        amazonAdaptiveTimeout.save();
+        super.onPause();
     }
 
     /**
@@ -91,7 +160,17 @@ public class HeaderBiddingBannerActivity extends AppCompatActivity {
      */
     @Override
     protected void onDestroy() {
+        amazonBidOrchestrator.cancelAll();
+        bannerRefreshScheduler.destroy();
+        if (amazonBidderAdapter != null) {
+            amazonBidderAdapter.destroy();
+        }
+        if (replacedAmazonBidderAdapter != null) {
+            replacedAmazonBidderAdapter.destroy();
+            replacedAmazonBidderAdapter = null;
+        }
         bannerView.onDestroy();
+        amazonBannerViewPool.destroy();
         super.onDestroy();
     }
 
@@ -113,11 +192,13 @@ public class HeaderBiddingBannerActivity extends AppCompatActivity {
             @Override
             public void onBannerAdLoaded(SASBannerView sasBannerView, SASAdElement sasAdElement) {
                 Log.i(TAG, "Banner loading completed.");
+                releaseReplacedBidderAdapter();
             }
 
             @Override
             public void onBannerAdFailedToLoad(SASBannerView sasBannerView, Exception e) {
                 Log.i(TAG, "Banner loading failed: " + e.getMessage());
+                releaseReplacedBidderAdapter();
             }
 
             @Override
@@ -160,26 +241,47 @@ public class HeaderBiddingBannerActivity extends AppCompatActivity {
         // Create Smart ad placement
         final SASAdPlacement adPlacement = new SASAdPlacement(SITE_ID, PAGE_ID, FORMAT_ID, TARGET);
 
-        // Create an ad size object and pass it to the ad request object
-        DTBAdSize adSize = new DTBAdSize(320, 50, AMAZON_BANNER_SLOT_ID);
-        DTBAdRequest adLoader = new DTBAdRequest();
-        adLoader.setSizes(adSize);
-        adLoader.loadAd(new DTBAdCallback() {
-
+        // Run the Amazon auction: a prefetched bid is used right away if any, otherwise Amazon is called
+        // and the Smart call goes out without Amazon bid if it does not answer before the deadline
+        amazonBidOrchestrator.requestBannerBid(this, new SASAmazonBidOrchestrator.Listener<SASAmazonBannerBidderAdapter>() {
             @Override
-            public void onSuccess(DTBAdResponse dtbAdResponse) {
-                Log.i(TAG, "Amazon ad request is successful");
-                // Amazon returned an ad, wrap it in a SASAmazonBannerBidderAdapter object and pass it to the Smart ad call
-                SASAmazonBannerBidderAdapter bidderAdapter =
-                        new SASAmazonBannerBidderAdapter(dtbAdResponse, HeaderBiddingBannerActivity.this);
-                bannerView.loadAd(adPlacement, bidderAdapter);
+            public void onAuctionCompleted(@Nullable SASAmazonBannerBidderAdapter bidderAdapter) {
+                // the previous Amazon banner stays displayed, and keeps forwarding its events, until the new ad is loaded
+                if (replacedAmazonBidderAdapter == null) {
+                    replacedAmazonBidderAdapter = amazonBidderAdapter;
+                } else if (amazonBidderAdapter != null) {
+                    // the banner of an ad call that did not complete was never displayed
+                    amazonBidderAdapter.release();
+                }
+                amazonBidderAdapter = bidderAdapter;
+
+                if (bidderAdapter != null) {
+                    Log.i(TAG, "Amazon auction returned a bid");
+                    // Amazon returned an ad, pass the SASAmazonBannerBidderAdapter object to the Smart ad call
+                    bidderAdapter.setBannerViewPool(amazonBannerViewPool);
+                    bidderAdapter.setContainerView(bannerView);
+                    bannerView.loadAd(adPlacement, bidderAdapter);
+                } else {
+                    Log.i(TAG, "Amazon auction returned no bid");
+                    // fallback: Smart call without Amazon header bidding object
+                    bannerView.loadAd(adPlacement);
+                }
             }
+        }, AMAZON_BANNER_AD_SIZES);
+    }
 
+    /**
+     * Releases the views of the Amazon banner replaced by the last ad call, once this call has completed
+     */
+    private void releaseReplacedBidderAdapter() {
+        // banner listener methods are not necessarily called on the main thread
+        runOnUiThread(new Runnable() {
             @Override
-            public void onFailure(AdError adError) {
-                Log.e(TAG, "Amazon ad request failed with error: " + adError.getMessage());
-                // fallback: Smart call without Amazon header bidding object
-                bannerView.loadAd(adPlacement);
+            public void run() {
+                if (replacedAmazonBidderAdapter != null) {
+                    replacedAmazonBidderAdapter.release();
+                    replacedAmazonBidderAdapter = null;
+                }
             }
         });
     }
@@ -1,6 +1,7 @@
 package com.smartadserver.android.amazonhbsample;
 
 import android.os.Bundle;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import android.util.Log;
 import android.view.View;
@@ -15,7 +16,10 @@ import com.amazon.device.ads.DTBAdResponse;
 import com.amazon.device.ads.DTBAdSize;
 import com.smartadserver.android.library.model.SASAdElement;
 import com.smartadserver.android.library.model.SASAdPlacement;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonBidderAdapterFactory;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonBidderAdapterResult;
 import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonInterstitialBidderAdapter;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonInterstitialPool;
 import com.smartadserver.android.library.ui.SASInterstitialManager;
 import com.smartadserver.android.library.util.SASUtil;
 
@@ -43,6 +47,12 @@ public class HeaderBiddingInterstitialActivity extends AppCompatActivity {
     // Button declared in main.xml
     Button displayInterstitialButton;
 
+    // Pool of Amazon interstitials preloaded ahead of display
+    SASAmazonInterstitialPool amazonInterstitialPool;
+
+    // Amazon bidder adapter passed to the last interstitial ad call, if any
+    SASAmazonInterstitialBidderAdapter amazonBidderAdapter;
+
     /**
      * performs Activity initialization after creation
      */
@@ -60,6 +70,10 @@ public class HeaderBiddingInterstitialActivity extends AppCompatActivity {
         // Initialize SASInterstitialView
         initInterstitialView();
 
+        // Start preloading an Amazon interstitial, so that it is ready when the user asks for one
+        amazonInterstitialPool = new SASAmazonInterstitialPool(this, AMAZON_INTERSTITIAL_SLOT_ID);
+        amazonInterstitialPool.warmUp();
+
         // Create button to manually refresh interstitial
         displayInterstitialButton = this.findViewById(R.id.loadAd);
         displayInterstitialButton.setOnClickListener(new View.OnClickListener() {
@@ -81,7 +95,11 @@ public class HeaderBiddingInterstitialActivity extends AppCompatActivity {
      */
     @Override
     protected void onDestroy() {
+        if (amazonBidderAdapter != null) {
+            amazonBidderAdapter.destroy();
+        }
         interstitialManager.onDestroy();
+        amazonInterstitialPool.destroy();
         super.onDestroy();
     }
 
@@ -156,6 +174,21 @@ public class HeaderBiddingInterstitialActivity extends AppCompatActivity {
      */
     private void loadInterstitialAd() {
 
+        // the previous Amazon interstitial is replaced, release it
+        if (amazonBidderAdapter != null) {
+            amazonBidderAdapter.release();
+            amazonBidderAdapter = null;
+        }
+
+        // Use a preloaded Amazon interstitial if one is ready, the pool refills itself in the background
+        SASAmazonInterstitialBidderAdapter pooledBidderAdapter = amazonInterstitialPool.pop();
+        if (pooledBidderAdapter != null) {
+            Log.i(TAG, "Using a preloaded Amazon ad");
+            amazonBidderAdapter = pooledBidderAdapter;
+            interstitialManager.loadAd(pooledBidderAdapter);
+            return;
+        }
+
         // Create an ad size object and pass it to the ad request object
         DTBAdSize adSize = new DTBAdSize.DTBInterstitialAdSize(AMAZON_INTERSTITIAL_SLOT_ID);
         DTBAdRequest adLoader = new DTBAdRequest();
@@ -165,11 +198,29 @@ public class HeaderBiddingInterstitialActivity extends AppCompatActivity {
             @Override
             public void onSuccess(DTBAdResponse dtbAdResponse) {
                 Log.i(TAG, "Amazon ad request is successful");
-                // Amazon returned an ad, wrap it in a SASAmazonBidderAdapter object and pass it to the Smart ad call
-                // Amazon returned an ad, wrap it in a SASAmazonBannerBidderAdapter object and pass it to the Smart ad call
-                SASAmazonInterstitialBidderAdapter bidderAdapter =
-                        new SASAmazonInterstitialBidderAdapter(dtbAdResponse, HeaderBiddingInterstitialActivity.this);
-                interstitialManager.loadAd(bidderAdapter);
+                // Amazon returned an ad, wrap it in a SASAmazonInterstitialBidderAdapter object off the main thread
+                // and pass it to the Smart ad call
+                SASAmazonBidderAdapterFactory.createInterstitialBidderAdapter(dtbAdResponse, HeaderBiddingInterstitialActivity.this,
+                        new SASAmazonBidderAdapterFactory.Callback<SASAmazonInterstitialBidderAdapter>() {
+                            @Override
+                            public void onBidderAdapterCreated(@NonNull SASAmazonBidderAdapterResult<SASAmazonInterstitialBidderAdapter> result) {
+                                if (isDestroyed()) {
+                                    // the activity was closed while the Amazon response was parsed
+                                    if (result.isAccepted()) {
+                                        result.getBidderAdapter().destroy();
+                                    }
+                                    return;
+                                }
+                                if (result.isAccepted()) {
+                                    amazonBidderAdapter = result.getBidderAdapter();
+                                    interstitialManager.loadAd(amazonBidderAdapter);
+                                } else {
+                                    Log.i(TAG, "Amazon ad cannot be used: " + result.getRejectionReason().getMessage());
+                                    // fallback: Smart call without Amazon header bidding
+                                    interstitialManager.loadAd();
+                                }
+                            }
+                        });
             }
 
             @Override
@@ -14,6 +14,8 @@ import android.widget.AdapterView.OnItemClickListener;
 import android.content.Intent;
 
 import com.amazon.device.ads.AdRegistration;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonBidJournal;
+import com.smartadserver.android.library.thirdpartybidding.amazon.SASAmazonLeakTracker;
 import com.smartadserver.android.library.util.SASConfiguration;
 
 public class MainActivity extends AppCompatActivity {
@@ -36,6 +38,12 @@ public class MainActivity extends AppCompatActivity {
         AdRegistration.enableLogging(AMAZON_LOGGING_ENABLED);
         AdRegistration.enableTesting(AMAZON_TESTING_ENABLED);
 
+        // report the Amazon bidder adapters that are never released in debug builds
+        SASAmazonLeakTracker.setEnabled(BuildConfig.DEBUG);
+
+        // request Amazon bids for the slots filled during the previous launches, so that the first banner does not wait for Amazon
+        SASAmazonBidJournal.getSharedInstance(this).prefetchRecentSlots(HeaderBiddingBannerActivity.amazonBidCache);
+
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
@@ -0,0 +1,160 @@
+package com.smartadserver.android.library.thirdpartybidding.common;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.smartadserver.android.library.thirdpartybidding.SASBidderAdapter;
+
+/**
+ * This class is an abstract implementation of the {@link SASBidderAdapter} interface shared by all third party bidder
+ * adapters rendering their creative through mediation.
+ * Subclasses only have to wrap the bid of their partner: adapters providing a currency compete on price, the others
+ * compete on keyword. Bidder adapters can also compete locally against each other in a {@link SASLocalBidAuction}.
+ * Their outcome events are recorded to the {@link SASBidEventPipeline} registered as shared instance, if any.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public abstract class SASBaseBidderAdapter implements SASBidderAdapter, SASRankedBid {
+
+    // tag for logging purposes
+    private static final String TAG = SASBaseBidderAdapter.class.getSimpleName();
+
+    // name of the adapter, also used as SSP name by default
+    private final String adapterName;
+
+    /**
+     * Creates a {@link SASBaseBidderAdapter}
+     *
+     * @param adapterName the name of the adapter, typically the name of the bidding partner
+     */
+    protected SASBaseBidderAdapter(@NonNull String adapterName) {
+        this.adapterName = adapterName;
+    }
+
+    ///////////////////////////////////////////////////////////
+    // ADAPTER INFORMATION
+    ///////////////////////////////////////////////////////////
+
+    @NonNull
+    @Override
+    public String getAdapterName() {
+        return adapterName;
+    }
+
+    @NonNull
+    @Override
+    public CompetitionType getCompetitionType() {
+        return getCurrency() != null ? CompetitionType.Price : CompetitionType.Keyword;
+    }
+
+    @NonNull
+    @Override
+    public RenderingType getRenderingType() {
+        return RenderingType.Mediation;
+    }
+
+    /**
+     * Returns the price of the bid when competing on price, 0 otherwise: bids only known by keyword lose any local
+     * auction against priced bids.
+     */
+    @Override
+    public double getBidValue() {
+        return getCompetitionType() == CompetitionType.Price ? getPrice() : 0;
+    }
+
+    ///////////////////////////////////////////////////////////
+    // WINNING CREATIVE INFORMATION
+    ///////////////////////////////////////////////////////////
+
+    /**
+     * Returns the partner ad unit (slot ID, placement...) of the bid, recorded with its outcome events. None by default.
+     */
+    @Nullable
+    protected String getAdUnitId() {
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public String getWinningSSPName() {
+        return adapterName;
+    }
+
+    @Nullable
+    @Override
+    public String getDealId() {
+        return null;
+    }
+
+    ///////////////////////////////////////////////////////////
+    // WIN NOTIFICATION CALLBACK
+    ///////////////////////////////////////////////////////////
+
+    @Override
+    public void primarySDKLostBidCompetition() {
+        Log.i(TAG, adapterName + " primarySDKLostBidCompetition() called");
+        recordEvent(SASBidEventPipeline.EventType.LOST);
+    }
+
+    /**
+     * Losing a {@link SASLocalBidAuction} is handled as losing the Smart competition, so that subclasses release their
+     * resources in {@link #primarySDKLostBidCompetition()} whichever auction they lose
+     */
+    @Override
+    public void localAuctionLost() {
+        primarySDKLostBidCompetition();
+    }
+
+    ///////////////////////////////////////////////////////////
+    // SMART DISPLAY SDK CREATIVE RENDERING
+    ///////////////////////////////////////////////////////////
+
+    @Nullable
+    @Override
+    public String getBidderWinningAdMarkup() {
+        return null;
+    }
+
+    @Override
+    public void primarySDKDisplayedBidderAd() {
+        Log.i(TAG, adapterName + " primarySDKDisplayedBidderAd() called");
+        recordEvent(SASBidEventPipeline.EventType.DISPLAYED);
+    }
+
+    @Override
+    public void primarySDKClickedBidderAd() {
+        Log.i(TAG, adapterName + " primarySDKClickedBidderAd() called");
+
+        // Nothing to do here this method will not be called on Mediation rendering type.
+    }
+
+    ///////////////////////////////////////////////////////////
+    // THIRD PARTY CREATIVE RENDERING
+    ///////////////////////////////////////////////////////////
+
+    @Override
+    public void primarySDKRequestedThirdPartyRendering() {
+        Log.i(TAG, adapterName + " primarySDKRequestedThirdPartyRendering() called");
+
+        // Nothing to do here this method will not be called on Mediation rendering type.
+    }
+
+    ///////////////////////////////////////////////////////////
+    // OUTCOME EVENTS
+    ///////////////////////////////////////////////////////////
+
+    /**
+     * Records the impression of the bidder creative, to be called by subclasses when their creative fires it
+     */
+    protected void recordImpression() {
+        recordEvent(SASBidEventPipeline.EventType.IMPRESSION);
+    }
+
+    /**
+     * Records an outcome event of this bid to the shared pipeline, if any
+     */
+    private void recordEvent(@NonNull SASBidEventPipeline.EventType type) {
+        SASBidEventPipeline.recordShared(type, adapterName, getAdUnitId(), getBidValue());
+    }
+}
@@ -0,0 +1,89 @@
+package com.smartadserver.android.library.thirdpartybidding.common;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A batch of bid outcome events handed to a {@link SASBidEventSink}. Events are stored in parallel arrays allocated
+ * once by the pipeline and read by index, from 0 to {@link #getSize()} excluded.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public final class SASBidEventBatch {
+
+    // all event types, indexed by ordinal
+    private static final SASBidEventPipeline.EventType[] EVENT_TYPES = SASBidEventPipeline.EventType.values();
+
+    // event fields, by event index
+    final byte[] types;
+    final long[] timestamps;
+    final double[] prices;
+    final String[] bidderNames;
+    final String[] adUnitIds;
+
+    // number of events in the batch
+    int size;
+
+    SASBidEventBatch(int capacity) {
+        types = new byte[capacity];
+        timestamps = new long[capacity];
+        prices = new double[capacity];
+        bidderNames = new String[capacity];
+        adUnitIds = new String[capacity];
+    }
+
+    /**
+     * Returns the number of events in the batch
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the type of an event
+     */
+    @NonNull
+    public SASBidEventPipeline.EventType getType(int index) {
+        checkIndex(index);
+        return EVENT_TYPES[types[index]];
+    }
+
+    /**
+     * Returns the time of an event, from System.currentTimeMillis()
+     */
+    public long getTimestampMs(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    /**
+     * Returns the price of the bid of an event, 0 if the bid competed on keyword
+     */
+    public double getPrice(int index) {
+        checkIndex(index);
+        return prices[index];
+    }
+
+    /**
+     * Returns the name of the bidder adapter of an event
+     */
+    @NonNull
+    public String getBidderName(int index) {
+        checkIndex(index);
+        return bidderNames[index];
+    }
+
+    /**
+     * Returns the partner ad unit (slot ID, placement...) of the bid of an event, if known
+     */
+    @Nullable
+    public String getAdUnitId(int index) {
+        checkIndex(index);
+        return adUnitIds[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Event index " + index + " out of batch of size " + size);
+        }
+    }
+}
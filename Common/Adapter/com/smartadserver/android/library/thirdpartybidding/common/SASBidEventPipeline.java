@@ -0,0 +1,385 @@
+package com.smartadserver.android.library.thirdpartybidding.common;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * This class collects the outcome events of bidder adapters (lost competitions, displays, impressions) and hands them
+ * in batches to a {@link SASBidEventSink} on a background thread, so that bid outcome analytics can run at full traffic
+ * without one wakeup nor allocation per event.
+ * <p>
+ * Events are written in a fixed-size ring buffer of primitive arrays. The background thread is only woken up when a
+ * full batch is ready, or after a flush interval when fewer events are pending. When the sink is slower than the
+ * events or rejects batches, events pile up in the ring buffer until it is full: new events are then dropped and
+ * counted rather than blocking the calling thread, usually the main thread.
+ * <p>
+ * {@link SASBaseBidderAdapter} records its events to the pipeline registered with {@link #setSharedInstance(SASBidEventPipeline)}.
+ * This class is thread safe.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASBidEventPipeline {
+
+    // tag for logging purposes
+    private static final String TAG = SASBidEventPipeline.class.getSimpleName();
+
+    /**
+     * Types of bid outcome events
+     */
+    public enum EventType {
+        // the bid lost the competition of the Smart SDK
+        LOST,
+        // the Smart SDK displayed the bidder ad
+        DISPLAYED,
+        // the bidder creative fired its impression
+        IMPRESSION
+    }
+
+    // default number of events kept in the ring buffer
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // default number of events handed to the sink at once
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    // default maximum delay before pending events are handed to the sink
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 30 * 1000;
+
+    // maximum delay before retrying a batch rejected by the sink
+    private static final long MAX_RETRY_DELAY_MS = 10 * 60 * 1000;
+
+    // the pipeline the bidder adapters record their events to, if any
+    @Nullable
+    private static volatile SASBidEventPipeline sharedInstance = null;
+
+    // destination of the batches
+    private final SASBidEventSink sink;
+
+    // maximum delay before pending events are flushed, in milliseconds
+    private final long flushIntervalMs;
+
+    // ring buffer of pending events, by slot index
+    private final byte[] types;
+    private final long[] timestamps;
+    private final double[] prices;
+    private final String[] bidderNames;
+    private final String[] adUnitIds;
+
+    // slot index of the oldest pending event
+    private int head = 0;
+
+    // number of pending events
+    private int count = 0;
+
+    // batch handed to the sink, only used while holding flushLock
+    private final SASBidEventBatch batch;
+
+    // serializes the flushes, so that a flush still running on the thread of a stopped pipeline does not share the
+    // batch with a flush of the restarted pipeline
+    private final Object flushLock = new Object();
+
+    // event counters
+    private long recordedCount = 0;
+    private long droppedCount = 0;
+    private long flushedCount = 0;
+    private long rejectedBatchCount = 0;
+
+    // number of consecutive batches rejected by the sink
+    private int consecutiveRejectionCount = 0;
+
+    // whether a flush is posted on the background thread
+    private boolean flushScheduled = false;
+
+    // background thread running the flushes, null when stopped
+    private HandlerThread flushThread = null;
+
+    // handler of the background thread, null when stopped
+    private Handler flushHandler = null;
+
+    // task handing pending events to the sink, batch after batch
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Creates a {@link SASBidEventPipeline} with a {@link #DEFAULT_CAPACITY} events ring buffer, flushing batches of
+     * {@link #DEFAULT_BATCH_SIZE} events at least every {@link #DEFAULT_FLUSH_INTERVAL_MS} milliseconds
+     *
+     * @param sink the destination of the batches
+     */
+    public SASBidEventPipeline(@NonNull SASBidEventSink sink) {
+        this(sink, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Creates a {@link SASBidEventPipeline}
+     *
+     * @param sink            the destination of the batches
+     * @param capacity        the number of events kept while waiting for the sink, beyond which new events are dropped
+     * @param batchSize       the maximum number of events handed to the sink at once
+     * @param flushIntervalMs the maximum delay before pending events are handed to the sink, in milliseconds
+     */
+    public SASBidEventPipeline(@NonNull SASBidEventSink sink, int capacity, int batchSize, long flushIntervalMs) {
+        if (batchSize <= 0 || capacity < batchSize) {
+            throw new IllegalArgumentException("The batch size must be strictly positive and not exceed the capacity.");
+        }
+        if (flushIntervalMs <= 0) {
+            throw new IllegalArgumentException("The flush interval must be strictly positive.");
+        }
+        this.sink = sink;
+        this.flushIntervalMs = flushIntervalMs;
+        this.types = new byte[capacity];
+        this.timestamps = new long[capacity];
+        this.prices = new double[capacity];
+        this.bidderNames = new String[capacity];
+        this.adUnitIds = new String[capacity];
+        this.batch = new SASBidEventBatch(batchSize);
+    }
+
+    /**
+     * Registers the pipeline the bidder adapters record their events to
+     *
+     * @param pipeline the pipeline, or null to record nothing
+     */
+    public static void setSharedInstance(@Nullable SASBidEventPipeline pipeline) {
+        sharedInstance = pipeline;
+    }
+
+    /**
+     * Returns the pipeline the bidder adapters record their events to, if any
+     */
+    @Nullable
+    public static SASBidEventPipeline getSharedInstance() {
+        return sharedInstance;
+    }
+
+    /**
+     * Records an event to the shared pipeline, if any
+     */
+    static void recordShared(@NonNull EventType type, @NonNull String bidderName, @Nullable String adUnitId, double price) {
+        SASBidEventPipeline pipeline = sharedInstance;
+        if (pipeline != null) {
+            pipeline.record(type, bidderName, adUnitId, price);
+        }
+    }
+
+    /**
+     * Records an event, without blocking nor allocating. The event is dropped if the ring buffer is full.
+     *
+     * @param type       the event type
+     * @param bidderName the name of the bidder adapter
+     * @param adUnitId   the partner ad unit of the bid, if known
+     * @param price      the price of the bid, 0 if it competed on keyword
+     * @return true if the event was recorded, false if it was dropped
+     */
+    public synchronized boolean record(@NonNull EventType type, @NonNull String bidderName, @Nullable String adUnitId, double price) {
+        int capacity = types.length;
+        if (count == capacity) {
+            droppedCount++;
+            return false;
+        }
+
+        int index = (head + count) % capacity;
+        types[index] = (byte) type.ordinal();
+        timestamps[index] = System.currentTimeMillis();
+        prices[index] = price;
+        bidderNames[index] = bidderName;
+        adUnitIds[index] = adUnitId;
+        count++;
+        recordedCount++;
+
+        // wake up the background thread for a full batch, or once after the flush interval for the first pending event
+        if (flushHandler != null && consecutiveRejectionCount == 0) {
+            if (count == batch.types.length) {
+                flushHandler.removeCallbacks(flushTask);
+                flushHandler.post(flushTask);
+                flushScheduled = true;
+            } else if (!flushScheduled) {
+                flushHandler.postDelayed(flushTask, flushIntervalMs);
+                flushScheduled = true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts handing events to the sink. Nothing is done if already started.
+     */
+    public synchronized void start() {
+        if (flushThread != null) {
+            return;
+        }
+        flushThread = new HandlerThread(SASBidEventPipeline.class.getSimpleName());
+        flushThread.start();
+        flushHandler = new Handler(flushThread.getLooper());
+        if (count > 0) {
+            flushHandler.postDelayed(flushTask, flushIntervalMs);
+            flushScheduled = true;
+        }
+    }
+
+    /**
+     * Hands the pending events to the sink right away, on the background thread. Call it when the application goes to
+     * background. Nothing is done if the pipeline is stopped.
+     */
+    public synchronized void flushNow() {
+        if (flushHandler != null) {
+            flushHandler.removeCallbacks(flushTask);
+            flushHandler.post(flushTask);
+            flushScheduled = true;
+        }
+    }
+
+    /**
+     * Hands the pending events to the sink a last time, then releases the background thread. Events recorded while
+     * stopped are kept until the next start, within the capacity.
+     */
+    public synchronized void stop() {
+        if (flushThread == null) {
+            return;
+        }
+        flushHandler.removeCallbacks(flushTask);
+        flushHandler.post(flushTask);
+        flushThread.quitSafely();
+        flushHandler = null;
+        flushThread = null;
+        flushScheduled = false;
+    }
+
+    /**
+     * Returns the number of events recorded since the creation of the pipeline
+     */
+    public synchronized long getRecordedCount() {
+        return recordedCount;
+    }
+
+    /**
+     * Returns the number of events dropped because the ring buffer was full
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Returns the number of events handled by the sink
+     */
+    public synchronized long getFlushedCount() {
+        return flushedCount;
+    }
+
+    /**
+     * Returns the number of batches rejected by the sink
+     */
+    public synchronized long getRejectedBatchCount() {
+        return rejectedBatchCount;
+    }
+
+    /**
+     * Returns the number of events waiting for the sink
+     */
+    public synchronized int getPendingCount() {
+        return count;
+    }
+
+    /**
+     * Hands the pending events to the sink batch after batch, on the background thread. Events are only removed from
+     * the ring buffer once their batch is handled, a rejected batch being retried with an increasing delay.
+     */
+    private void flush() {
+        synchronized (flushLock) {
+            flushBatches();
+        }
+    }
+
+    /**
+     * Flushes the pending events, while holding flushLock
+     */
+    private void flushBatches() {
+        while (true) {
+            if (!fillBatch()) {
+                return;
+            }
+
+            // the sink is called without the ring buffer lock, so that events can be recorded meanwhile, and a sink
+            // throwing is handled as a rejection rather than killing the background thread
+            boolean handled;
+            try {
+                handled = sink.onEvents(batch);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Bid event sink failed: " + e.getMessage());
+                handled = false;
+            }
+
+            synchronized (this) {
+                if (handled) {
+                    // release the references to the strings of the removed events
+                    for (int i = 0; i < batch.size; i++) {
+                        int index = (head + i) % types.length;
+                        bidderNames[index] = null;
+                        adUnitIds[index] = null;
+                    }
+                    head = (head + batch.size) % types.length;
+                    count -= batch.size;
+                    flushedCount += batch.size;
+                    consecutiveRejectionCount = 0;
+                } else {
+                    rejectedBatchCount++;
+                    consecutiveRejectionCount++;
+                }
+
+                for (int i = 0; i < batch.size; i++) {
+                    batch.bidderNames[i] = null;
+                    batch.adUnitIds[i] = null;
+                }
+
+                if (!handled) {
+                    if (flushHandler != null) {
+                        long retryDelayMs = flushIntervalMs << Math.min(consecutiveRejectionCount - 1, 16);
+                        flushHandler.postDelayed(flushTask, Math.min(MAX_RETRY_DELAY_MS, retryDelayMs));
+                    }
+                    return;
+                }
+
+                // only full batches are flushed right away, the remaining events wait for the next interval
+                if (count < batch.types.length) {
+                    if (count > 0 && flushHandler != null) {
+                        flushHandler.postDelayed(flushTask, flushIntervalMs);
+                    } else {
+                        flushScheduled = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the oldest pending events to the batch, without removing them from the ring buffer
+     *
+     * @return false if there is no pending event
+     */
+    private synchronized boolean fillBatch() {
+        if (count == 0) {
+            flushScheduled = false;
+            return false;
+        }
+
+        int capacity = types.length;
+        int size = Math.min(count, batch.types.length);
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % capacity;
+            batch.types[i] = types[index];
+            batch.timestamps[i] = timestamps[index];
+            batch.prices[i] = prices[index];
+            batch.bidderNames[i] = bidderNames[index];
+            batch.adUnitIds[i] = adUnitIds[index];
+        }
+        batch.size = size;
+        return true;
+    }
+}
@@ -0,0 +1,19 @@
+package com.smartadserver.android.library.thirdpartybidding.common;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Destination of the bid outcome events batched by a {@link SASBidEventPipeline}, typically an analytics uploader.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public interface SASBidEventSink {
+
+    /**
+     * Called on the background thread of the pipeline with a batch of events, oldest first.
+     * The batch is reused by the pipeline: its content must be copied or serialized before returning.
+     *
+     * @param batch the events to send
+     * @return true if the batch was handled, false to keep its events in the pipeline and retry later
+     */
+    boolean onEvents(@NonNull SASBidEventBatch batch);
+}
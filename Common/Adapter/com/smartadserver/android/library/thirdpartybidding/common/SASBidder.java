@@ -0,0 +1,37 @@
+package com.smartadserver.android.library.thirdpartybidding.common;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Interface implemented by the third party bidders taking part in a {@link SASLocalBidAuction}.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public interface SASBidder<T extends SASRankedBid> {
+
+    /**
+     * Callback notified of the outcome of a bid request
+     */
+    interface Callback<T> {
+
+        /**
+         * Called once, from any thread, when the bid request is over
+         *
+         * @param bid the bid, or null if the bidder did not bid
+         */
+        void onBidReceived(@Nullable T bid);
+    }
+
+    /**
+     * Returns the name of the bidder, for logging purposes
+     */
+    @NonNull
+    String getName();
+
+    /**
+     * Requests a bid. This method must return immediately, the callback being notified asynchronously.
+     *
+     * @param callback the callback to notify of the bid, or of its absence
+     */
+    void requestBid(@NonNull Callback<T> callback);
+}
@@ -0,0 +1,244 @@
+package com.smartadserver.android.library.thirdpartybidding.common;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class runs a local auction between several third party bidders before the Smart ad call.
+ * All bidders are called at once, and the auction ends as soon as all of them have answered or when its single deadline
+ * is reached, whichever comes first. Only the highest bid received by then wins, and should be passed to the Smart
+ * loadAd() method: the latency of the auction is the one of the slowest bidder within the deadline, not their sum.
+ * The losing bids, and the bids received after the end of the auction, are notified with {@link SASRankedBid#localAuctionLost()}.
+ * The listener is notified on the main thread, unless another executor is given to the constructor.
+ * <p>
+ * This class is thread safe, and an instance can run several auctions concurrently.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public class SASLocalBidAuction<T extends SASRankedBid> {
+
+    // default deadline of an auction
+    public static final long DEFAULT_TIMEOUT_MS = 1000;
+
+    /**
+     * Listener notified when an auction is over
+     */
+    public interface Listener<T> {
+
+        /**
+         * Called exactly once per auction, on the main thread unless another callback executor is given
+         *
+         * @param winningBid the highest bid received before the deadline, or null if there is none
+         */
+        void onAuctionCompleted(@Nullable T winningBid);
+    }
+
+    // shared thread enforcing the deadlines of all auctions
+    private static final ScheduledExecutorService DEADLINE_SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, SASLocalBidAuction.class.getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // bidders taking part in the auctions
+    private final List<SASBidder<? extends T>> bidders;
+
+    // deadline of an auction, in milliseconds
+    private final long timeoutMs;
+
+    // executor the listeners are notified on
+    private final Executor callbackExecutor;
+
+    /**
+     * Creates a {@link SASLocalBidAuction} with a {@link #DEFAULT_TIMEOUT_MS} deadline
+     */
+    public SASLocalBidAuction(@NonNull List<SASBidder<? extends T>> bidders) {
+        this(bidders, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * Creates a {@link SASLocalBidAuction} notifying its listeners on the main thread
+     *
+     * @param bidders   the bidders taking part in the auctions
+     * @param timeoutMs the deadline of an auction, in milliseconds
+     */
+    public SASLocalBidAuction(@NonNull List<SASBidder<? extends T>> bidders, long timeoutMs) {
+        this(bidders, timeoutMs, new MainThreadExecutor());
+    }
+
+    /**
+     * Creates a {@link SASLocalBidAuction}
+     *
+     * @param bidders          the bidders taking part in the auctions
+     * @param timeoutMs        the deadline of an auction, in milliseconds
+     * @param callbackExecutor the executor the listeners are notified on
+     */
+    public SASLocalBidAuction(@NonNull List<SASBidder<? extends T>> bidders, long timeoutMs, @NonNull Executor callbackExecutor) {
+        if (bidders.isEmpty()) {
+            throw new IllegalArgumentException("At least one bidder is needed to run an auction.");
+        }
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("The auction timeout must be strictly positive.");
+        }
+        this.bidders = new ArrayList<>(bidders);
+        this.timeoutMs = timeoutMs;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Starts an auction. This method returns immediately, the listener being notified asynchronously.
+     */
+    public void start(@NonNull Listener<T> listener) {
+        Round round = new Round(listener);
+        round.deadline = DEADLINE_SCHEDULER.schedule(round, timeoutMs, TimeUnit.MILLISECONDS);
+
+        for (SASBidder<? extends T> bidder : bidders) {
+            round.requestBid(bidder);
+        }
+    }
+
+    /**
+     * A single auction, completed either when all bidders have answered or by the deadline, whichever comes first
+     */
+    private class Round implements Runnable {
+
+        // listener to notify of the auction outcome
+        private final Listener<T> listener;
+
+        // number of bidders that have not answered yet, guarded by this
+        private int pendingBidderCount = bidders.size();
+
+        // highest bid received so far, guarded by this
+        private T winningBid = null;
+
+        // set once the auction is over, guarded by this
+        private boolean completed = false;
+
+        // the scheduled deadline of the auction
+        private volatile ScheduledFuture<?> deadline;
+
+        Round(@NonNull Listener<T> listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Requests a bid to the given bidder, a bidder failing to request counting as a bidder without bid
+         */
+        <B extends T> void requestBid(@NonNull SASBidder<B> bidder) {
+            final AtomicBoolean answered = new AtomicBoolean(false);
+            SASBidder.Callback<B> callback = new SASBidder.Callback<B>() {
+                @Override
+                public void onBidReceived(@Nullable B bid) {
+                    // ignore bidders calling back more than once
+                    if (answered.compareAndSet(false, true)) {
+                        onBid(bid);
+                    }
+                }
+            };
+
+            try {
+                bidder.requestBid(callback);
+            } catch (RuntimeException e) {
+                callback.onBidReceived(null);
+            }
+        }
+
+        /**
+         * Deadline reached
+         */
+        @Override
+        public void run() {
+            T winningBid;
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+                winningBid = this.winningBid;
+            }
+            notifyListener(winningBid);
+        }
+
+        /**
+         * Keeps the given bid if it is the highest so far, and completes the auction once all bidders have answered.
+         * The bid outbid, or the given bid if it loses or arrives after the end of the auction, is notified of its loss.
+         */
+        private void onBid(@Nullable T bid) {
+            T lostBid;
+            T winningBid = null;
+            boolean completedByBid = false;
+            synchronized (this) {
+                if (completed) {
+                    lostBid = bid;
+                } else {
+                    if (bid != null && (this.winningBid == null || bid.getBidValue() > this.winningBid.getBidValue())) {
+                        lostBid = this.winningBid;
+                        this.winningBid = bid;
+                    } else {
+                        lostBid = bid;
+                    }
+                    if (--pendingBidderCount == 0) {
+                        completed = true;
+                        completedByBid = true;
+                        winningBid = this.winningBid;
+                    }
+                }
+            }
+
+            // losing bids and late bids will not be used
+            if (lostBid != null) {
+                lostBid.localAuctionLost();
+            }
+            if (!completedByBid) {
+                return;
+            }
+
+            ScheduledFuture<?> deadline = this.deadline;
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+            notifyListener(winningBid);
+        }
+
+        /**
+         * Notifies the listener of the auction outcome on the callback executor
+         */
+        private void notifyListener(@Nullable final T winningBid) {
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onAuctionCompleted(winningBid);
+                }
+            });
+        }
+    }
+
+    /**
+     * Executor running its tasks on the main thread
+     */
+    private static class MainThreadExecutor implements Executor {
+
+        // handler of the main looper
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable task) {
+            mainHandler.post(task);
+        }
+    }
+}
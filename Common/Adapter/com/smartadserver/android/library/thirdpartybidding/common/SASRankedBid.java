@@ -0,0 +1,20 @@
+package com.smartadserver.android.library.thirdpartybidding.common;
+
+/**
+ * Interface implemented by the bids competing in a {@link SASLocalBidAuction}.
+ * Source : https://github.com/smartadserver/smart-inapp-bidding-android
+ */
+public interface SASRankedBid {
+
+    /**
+     * Returns the value of the bid, used to rank it against the bids of other bidders.
+     * All bidders of an auction must express it in the same unit, typically a CPM in the same currency.
+     */
+    double getBidValue();
+
+    /**
+     * Called when the bid loses a {@link SASLocalBidAuction}, or is received after its end. The bid will not be used:
+     * implementations should release what they hold, and notify their partner of the loss if relevant.
+     */
+    void localAuctionLost();
+}